@@ -0,0 +1,268 @@
+package com.haarman.supertooltips;
+
+import android.app.Activity;
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Debug;
+import android.os.Handler;
+import android.util.Log;
+import android.view.Gravity;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.nhaarman.supertooltips.ToolTip;
+import com.nhaarman.supertooltips.ToolTipRelativeLayout;
+import com.nhaarman.supertooltips.ToolTipView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures what showing and removing ToolTips costs on a device: for each
+ * combination of content, {@link ToolTip.AnimationType} and number of
+ * concurrent ToolTips, it shows the ToolTips, waits for the first draw,
+ * removes them and waits until they are detached. Results are logged as one
+ * JSON object per line with tag {@link #TAG}.
+ * <p/>
+ * Start it from the options menu of the sample, and read the results using:
+ * <pre>
+ * adb logcat -s SuperToolTipsBenchmark
+ * </pre>
+ */
+public class BenchmarkActivity extends Activity implements ViewTreeObserver.OnPreDrawListener, ViewGroup.OnHierarchyChangeListener {
+
+    private static final String TAG = "SuperToolTipsBenchmark";
+
+    private static final int ROWS = 10;
+    private static final int COLUMNS = 5;
+
+    private static final int[] CONCURRENT_TOOLTIPS = {1, 10, 50};
+    private static final boolean[] CUSTOM_CONTENT = {false, true};
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int ITERATIONS = 20;
+
+    private final Handler mHandler = new Handler();
+    private final List<View> mAnchors = new ArrayList<>();
+    private final List<ToolTipView> mToolTipViews = new ArrayList<>();
+
+    private CountingToolTipRelativeLayout mToolTipRelativeLayout;
+
+    private int mScenario;
+    private int mIteration;
+    private boolean mWaitingForDraw;
+
+    private long mStartNanos;
+    private long mStartAllocatedBytes;
+    private int mStartLayoutCount;
+
+    private long[] mFirstDrawNanos;
+    private long[] mDetachNanos;
+    private long mAllocatedBytes;
+    private int mLayoutCount;
+
+    @Override
+    protected void onCreate(final Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        final FrameLayout root = new FrameLayout(this);
+        final LinearLayout anchors = new LinearLayout(this);
+        anchors.setOrientation(LinearLayout.VERTICAL);
+        for (int row = 0; row < ROWS; row++) {
+            final LinearLayout anchorRow = new LinearLayout(this);
+            for (int column = 0; column < COLUMNS; column++) {
+                final TextView anchor = new TextView(this);
+                anchor.setGravity(Gravity.CENTER);
+                anchor.setText(String.valueOf(row * COLUMNS + column));
+                anchorRow.addView(anchor, new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.MATCH_PARENT, 1));
+                mAnchors.add(anchor);
+            }
+            anchors.addView(anchorRow, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, 0, 1));
+        }
+        root.addView(anchors);
+
+        mToolTipRelativeLayout = new CountingToolTipRelativeLayout(this);
+        mToolTipRelativeLayout.setOnHierarchyChangeListener(this);
+        root.addView(mToolTipRelativeLayout);
+        setContentView(root);
+
+        mHandler.postDelayed(new Runnable() {
+            @Override
+            public void run() {
+                startAllocCounting();
+                startIteration();
+            }
+        }, 1000);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mHandler.removeCallbacksAndMessages(null);
+        stopAllocCounting();
+    }
+
+    /*
+     * The allocation counters of Debug are deprecated from API 23 on, but
+     * below that they are the only way to count the bytes a thread allocates.
+     */
+
+    @SuppressWarnings("deprecation")
+    private static void startAllocCounting() {
+        Debug.startAllocCounting();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static void stopAllocCounting() {
+        Debug.stopAllocCounting();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long getThreadAllocSize() {
+        return Debug.getThreadAllocSize();
+    }
+
+    private static int getScenarioCount() {
+        return CUSTOM_CONTENT.length * ToolTip.AnimationType.values().length * CONCURRENT_TOOLTIPS.length;
+    }
+
+    private boolean isCustomContent() {
+        return CUSTOM_CONTENT[mScenario / (ToolTip.AnimationType.values().length * CONCURRENT_TOOLTIPS.length)];
+    }
+
+    private ToolTip.AnimationType getAnimationType() {
+        return ToolTip.AnimationType.values()[mScenario / CONCURRENT_TOOLTIPS.length % ToolTip.AnimationType.values().length];
+    }
+
+    private int getConcurrentToolTips() {
+        return CONCURRENT_TOOLTIPS[mScenario % CONCURRENT_TOOLTIPS.length];
+    }
+
+    private void startIteration() {
+        if (mIteration == 0) {
+            mFirstDrawNanos = new long[ITERATIONS];
+            mDetachNanos = new long[ITERATIONS];
+            mAllocatedBytes = 0;
+            mLayoutCount = 0;
+        }
+
+        mWaitingForDraw = true;
+        mToolTipRelativeLayout.getViewTreeObserver().addOnPreDrawListener(this);
+
+        mStartLayoutCount = mToolTipRelativeLayout.getLayoutCount();
+        mStartAllocatedBytes = getThreadAllocSize();
+        mStartNanos = System.nanoTime();
+
+        final int concurrentToolTips = getConcurrentToolTips();
+        for (int i = 0; i < concurrentToolTips; i++) {
+            final ToolTip toolTip = new ToolTip()
+                    .withColor(getResources().getColor(R.color.holo_blue))
+                    .withAnimationType(getAnimationType());
+            if (isCustomContent()) {
+                toolTip.withContentView(LayoutInflater.from(this).inflate(R.layout.custom_tooltip, null));
+            } else {
+                toolTip.withText("ToolTip " + i);
+            }
+            mToolTipViews.add(mToolTipRelativeLayout.showToolTipForView(toolTip, mAnchors.get(i)));
+        }
+    }
+
+    @Override
+    public boolean onPreDraw() {
+        if (mWaitingForDraw) {
+            mWaitingForDraw = false;
+            mToolTipRelativeLayout.getViewTreeObserver().removeOnPreDrawListener(this);
+            if (isMeasuredIteration()) {
+                mFirstDrawNanos[mIteration - WARMUP_ITERATIONS] = System.nanoTime() - mStartNanos;
+            }
+
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    for (final ToolTipView toolTipView : mToolTipViews) {
+                        toolTipView.remove();
+                    }
+                    mToolTipViews.clear();
+                }
+            });
+        }
+        return true;
+    }
+
+    @Override
+    public void onChildViewAdded(final View parent, final View child) {
+    }
+
+    @Override
+    public void onChildViewRemoved(final View parent, final View child) {
+        /* The removed child is no longer counted while this is called: wait until all ToolTipViews are gone. */
+        if (mToolTipRelativeLayout.getChildCount() > 0) {
+            return;
+        }
+
+        if (isMeasuredIteration()) {
+            mDetachNanos[mIteration - WARMUP_ITERATIONS] = System.nanoTime() - mStartNanos;
+            mAllocatedBytes += getThreadAllocSize() - mStartAllocatedBytes;
+            mLayoutCount += mToolTipRelativeLayout.getLayoutCount() - mStartLayoutCount;
+        }
+
+        mIteration++;
+        if (mIteration == WARMUP_ITERATIONS + ITERATIONS) {
+            logResult();
+            mIteration = 0;
+            mScenario++;
+        }
+
+        if (mScenario < getScenarioCount()) {
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    startIteration();
+                }
+            });
+        } else {
+            Log.i(TAG, "done");
+        }
+    }
+
+    private boolean isMeasuredIteration() {
+        return mIteration >= WARMUP_ITERATIONS;
+    }
+
+    private void logResult() {
+        final int operations = ITERATIONS * getConcurrentToolTips();
+        new BenchmarkResult()
+                .put("content", isCustomContent() ? "custom" : "text")
+                .put("animationType", getAnimationType().name())
+                .put("concurrentToolTips", getConcurrentToolTips())
+                .put("iterations", ITERATIONS)
+                .putPercentiles("firstDrawNanos", mFirstDrawNanos)
+                .putPercentiles("detachNanos", mDetachNanos)
+                .put("allocatedBytesPerToolTip", mAllocatedBytes / operations)
+                .put("layoutPassesPerToolTip", mLayoutCount / (double) operations)
+                .log(TAG);
+    }
+
+    private static class CountingToolTipRelativeLayout extends ToolTipRelativeLayout {
+
+        private int mLayoutCount;
+
+        CountingToolTipRelativeLayout(final Context context) {
+            super(context);
+        }
+
+        @Override
+        protected void onLayout(final boolean changed, final int l, final int t, final int r, final int b) {
+            mLayoutCount++;
+            super.onLayout(changed, l, t, r, b);
+        }
+
+        int getLayoutCount() {
+            return mLayoutCount;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.haarman.supertooltips;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+
+/**
+ * A single result of a benchmark activity, logged as one JSON object per line.
+ */
+final class BenchmarkResult {
+
+    private final JSONObject mJson = new JSONObject();
+
+    BenchmarkResult put(final String name, final Object value) {
+        try {
+            mJson.put(name, value);
+        } catch (final JSONException e) {
+            throw new IllegalArgumentException("Invalid value for " + name + ": " + value, e);
+        }
+        return this;
+    }
+
+    /**
+     * Puts the 50th, 90th and 99th percentile of given values as an object with keys p50, p90 and p99.
+     */
+    BenchmarkResult putPercentiles(final String name, final long[] values) {
+        final long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return put(name, new BenchmarkResult()
+                .put("p50", sorted[(sorted.length - 1) * 50 / 100])
+                .put("p90", sorted[(sorted.length - 1) * 90 / 100])
+                .put("p99", sorted[(sorted.length - 1) * 99 / 100])
+                .mJson);
+    }
+
+    void log(final String tag) {
+        Log.i(tag, mJson.toString());
+    }
+}
@@ -0,0 +1,170 @@
+package com.haarman.supertooltips;
+
+import android.app.Activity;
+import android.os.Bundle;
+import android.os.Handler;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.nhaarman.supertooltips.ToolTip;
+import com.nhaarman.supertooltips.ToolTipAbsoluteLayout;
+import com.nhaarman.supertooltips.ToolTipRelativeLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the time a full measure and layout pass takes for a
+ * {@link ToolTipRelativeLayout} and a {@link ToolTipAbsoluteLayout}
+ * holding the same content tree and 1 to 50 ToolTips. Results are logged as
+ * one JSON object per line with tag {@link #TAG}.
+ * <p/>
+ * Start it from the options menu of the sample, and read the results using:
+ * <pre>
+ * adb logcat -s SuperToolTipsLayoutBenchmark
+ * </pre>
+ */
+public class LayoutBenchmarkActivity extends Activity implements Runnable {
+
+    private static final String TAG = "SuperToolTipsLayoutBenchmark";
+
+    private static final int ROWS = 50;
+    private static final int[] TOOLTIP_COUNTS = {1, 10, 25, 50};
+    private static final boolean[] ABSOLUTE_LAYOUT = {false, true};
+    private static final int WARMUP_ITERATIONS = 10;
+    private static final int ITERATIONS = 100;
+
+    /**
+     * The time to wait for a shown layout to settle before measuring it, in milliseconds.
+     */
+    private static final long SETTLE_DELAY = 500;
+
+    private final Handler mHandler = new Handler();
+
+    private ToolTipRelativeLayout mToolTipRelativeLayout;
+    private int mScenario;
+
+    @Override
+    protected void onCreate(final Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        showScenario();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mHandler.removeCallbacksAndMessages(null);
+    }
+
+    private boolean isAbsoluteLayout() {
+        return ABSOLUTE_LAYOUT[mScenario / TOOLTIP_COUNTS.length];
+    }
+
+    private int getToolTipCount() {
+        return TOOLTIP_COUNTS[mScenario % TOOLTIP_COUNTS.length];
+    }
+
+    private void showScenario() {
+        mToolTipRelativeLayout = isAbsoluteLayout() ? new ToolTipAbsoluteLayout(this) : new ToolTipRelativeLayout(this);
+
+        final List<View> anchors = new ArrayList<>();
+        mToolTipRelativeLayout.addView(createContent(anchors), new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        setContentView(mToolTipRelativeLayout);
+
+        final List<ToolTip> toolTips = new ArrayList<>();
+        final List<View> toolTipAnchors = new ArrayList<>();
+        for (int i = 0; i < getToolTipCount(); i++) {
+            toolTips.add(new ToolTip()
+                    .withText("ToolTip " + i)
+                    .withColor(getResources().getColor(R.color.holo_orange))
+                    .withAnimationType(ToolTip.AnimationType.NONE));
+            toolTipAnchors.add(anchors.get(i % anchors.size()));
+        }
+        mToolTipRelativeLayout.showToolTips(toolTips, toolTipAnchors);
+
+        mHandler.postDelayed(this, SETTLE_DELAY);
+    }
+
+    /**
+     * @return a list screen like content tree: rows with an icon, a title and a subtitle.
+     */
+    private View createContent(final List<View> anchors) {
+        final LinearLayout content = new LinearLayout(this);
+        content.setOrientation(LinearLayout.VERTICAL);
+        for (int i = 0; i < ROWS; i++) {
+            final LinearLayout row = new LinearLayout(this);
+
+            final ImageView icon = new ImageView(this);
+            icon.setImageResource(R.drawable.ic_android);
+            row.addView(icon);
+
+            final LinearLayout texts = new LinearLayout(this);
+            texts.setOrientation(LinearLayout.VERTICAL);
+            final TextView title = new TextView(this);
+            title.setText("Row " + i);
+            texts.addView(title);
+            final TextView subtitle = new TextView(this);
+            subtitle.setText("A subtitle for row " + i);
+            texts.addView(subtitle);
+            row.addView(texts, new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1));
+
+            content.addView(row);
+            anchors.add(title);
+        }
+        return content;
+    }
+
+    @Override
+    public void run() {
+        final int widthMeasureSpec = View.MeasureSpec.makeMeasureSpec(mToolTipRelativeLayout.getWidth(), View.MeasureSpec.EXACTLY);
+        final int heightMeasureSpec = View.MeasureSpec.makeMeasureSpec(mToolTipRelativeLayout.getHeight(), View.MeasureSpec.EXACTLY);
+
+        final long[] layoutNanos = new long[ITERATIONS];
+        for (int i = 0; i < WARMUP_ITERATIONS + ITERATIONS; i++) {
+            forceLayout(mToolTipRelativeLayout);
+
+            final long startNanos = System.nanoTime();
+            mToolTipRelativeLayout.measure(widthMeasureSpec, heightMeasureSpec);
+            mToolTipRelativeLayout.layout(mToolTipRelativeLayout.getLeft(), mToolTipRelativeLayout.getTop(),
+                    mToolTipRelativeLayout.getRight(), mToolTipRelativeLayout.getBottom());
+            if (i >= WARMUP_ITERATIONS) {
+                layoutNanos[i - WARMUP_ITERATIONS] = System.nanoTime() - startNanos;
+            }
+        }
+        logResult(layoutNanos);
+
+        mScenario++;
+        if (mScenario < ABSOLUTE_LAYOUT.length * TOOLTIP_COUNTS.length) {
+            showScenario();
+        } else {
+            Log.i(TAG, "done");
+        }
+    }
+
+    /**
+     * Marks given View and all its descendants as needing a measure and layout pass.
+     */
+    private static void forceLayout(final View view) {
+        view.forceLayout();
+        if (view instanceof ViewGroup) {
+            final ViewGroup viewGroup = (ViewGroup) view;
+            for (int i = 0; i < viewGroup.getChildCount(); i++) {
+                forceLayout(viewGroup.getChildAt(i));
+            }
+        }
+    }
+
+    private void logResult(final long[] layoutNanos) {
+        new BenchmarkResult()
+                .put("container", mToolTipRelativeLayout.getClass().getSimpleName())
+                .put("toolTips", getToolTipCount())
+                .put("contentRows", ROWS)
+                .put("iterations", ITERATIONS)
+                .putPercentiles("layoutNanos", layoutNanos)
+                .log(TAG);
+    }
+}
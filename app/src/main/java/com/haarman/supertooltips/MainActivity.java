@@ -1,16 +1,29 @@
 package com.haarman.supertooltips;
 
 import android.app.Activity;
+import android.content.Intent;
 import android.os.Bundle;
-import android.os.Handler;
-import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 
 import com.nhaarman.supertooltips.ToolTip;
 import com.nhaarman.supertooltips.ToolTipRelativeLayout;
 import com.nhaarman.supertooltips.ToolTipView;
 
-public class MainActivity extends Activity implements View.OnClickListener, ToolTipView.OnToolTipViewClickedListener {
+import java.util.ArrayList;
+
+public class MainActivity extends Activity implements View.OnClickListener, ToolTipView.OnToolTipViewClickedListener,
+        ToolTipRelativeLayout.OnScheduledToolTipShownListener {
+
+    private static final long TOOLTIP_SPACING_MILLIS = 200;
+
+    private static final String KEY_SCHEDULED_ANCHOR_IDS = "scheduledAnchorIds";
+
+    /**
+     * The ids of the Views for which a scheduled ToolTip has not been shown yet.
+     */
+    private final ArrayList<Integer> mScheduledAnchorIds = new ArrayList<>();
 
     private ToolTipView mRedToolTipView;
     private ToolTipView mGreenToolTipView;
@@ -25,95 +38,148 @@ public class MainActivity extends Activity implements View.OnClickListener, Tool
         setContentView(R.layout.activity_main);
 
         mToolTipFrameLayout = (ToolTipRelativeLayout) findViewById(R.id.activity_main_tooltipframelayout);
+        mToolTipFrameLayout.setSaveToolTipsEnabled(true);
         findViewById(R.id.activity_main_redtv).setOnClickListener(this);
         findViewById(R.id.activity_main_greentv).setOnClickListener(this);
         findViewById(R.id.activity_main_bluetv).setOnClickListener(this);
         findViewById(R.id.activity_main_purpletv).setOnClickListener(this);
         findViewById(R.id.activity_main_orangetv).setOnClickListener(this);
 
-
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                addRedToolTipView();
+        /* Show the ToolTips one by one, in frames where the main thread is not busy setting up the screen. */
+        mToolTipFrameLayout.setOnScheduledToolTipShownListener(this);
+        if (savedInstanceState == null) {
+            scheduleToolTip(R.id.activity_main_redtv);
+            scheduleToolTip(R.id.activity_main_greentv);
+            scheduleToolTip(R.id.activity_main_orangetv);
+            scheduleToolTip(R.id.activity_main_bluetv);
+            scheduleToolTip(R.id.activity_main_purpletv);
+        } else {
+            /* The ToolTipRelativeLayout restores the ToolTips that were shown, but not the ones that were still scheduled. */
+            for (final int anchorId : savedInstanceState.getIntegerArrayList(KEY_SCHEDULED_ANCHOR_IDS)) {
+                scheduleToolTip(anchorId);
             }
-        }, 500);
+        }
+    }
 
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                addGreenToolTipView();
-            }
-        }, 700);
+    @Override
+    protected void onSaveInstanceState(final Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putIntegerArrayList(KEY_SCHEDULED_ANCHOR_IDS, mScheduledAnchorIds);
+    }
 
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                addOrangeToolTipView();
-            }
-        }, 900);
+    @Override
+    protected void onRestoreInstanceState(final Bundle savedInstanceState) {
+        super.onRestoreInstanceState(savedInstanceState);
 
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                addBlueToolTipView();
-            }
-        }, 1100);
+        mRedToolTipView = findRestoredToolTipView(R.id.activity_main_redtv);
+        mGreenToolTipView = findRestoredToolTipView(R.id.activity_main_greentv);
+        mBlueToolTipView = findRestoredToolTipView(R.id.activity_main_bluetv);
+        mPurpleToolTipView = findRestoredToolTipView(R.id.activity_main_purpletv);
+        mOrangeToolTipView = findRestoredToolTipView(R.id.activity_main_orangetv);
+    }
 
-        new Handler().postDelayed(new Runnable() {
-            @Override
-            public void run() {
-                addPurpleToolTipView();
-            }
-        }, 1300);
+    @Override
+    public boolean onCreateOptionsMenu(final Menu menu) {
+        getMenuInflater().inflate(R.menu.main, menu);
+        return true;
+    }
 
+    @Override
+    public boolean onOptionsItemSelected(final MenuItem item) {
+        int id = item.getItemId();
+        if (id == R.id.menu_main_benchmark) {
+            startActivity(new Intent(this, BenchmarkActivity.class));
+            return true;
+        } else if (id == R.id.menu_main_layout_benchmark) {
+            startActivity(new Intent(this, LayoutBenchmarkActivity.class));
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
     }
 
-    private void addRedToolTipView() {
-        ToolTip toolTip = new ToolTip()
+    private ToolTipView findRestoredToolTipView(final int anchorId) {
+        final ToolTipView toolTipView = mToolTipFrameLayout.getToolTipViewForView(findViewById(anchorId));
+        if (toolTipView != null) {
+            toolTipView.setOnToolTipViewClickedListener(this);
+        }
+        return toolTipView;
+    }
+
+    private void scheduleToolTip(final int anchorId) {
+        mScheduledAnchorIds.add(anchorId);
+        mToolTipFrameLayout.scheduleToolTip(createToolTip(anchorId), findViewById(anchorId), 0, TOOLTIP_SPACING_MILLIS);
+    }
+
+    private ToolTip createToolTip(final int anchorId) {
+        if (anchorId == R.id.activity_main_redtv) {
+            return createRedToolTip();
+        } else if (anchorId == R.id.activity_main_greentv) {
+            return createGreenToolTip();
+        } else if (anchorId == R.id.activity_main_bluetv) {
+            return createBlueToolTip();
+        } else if (anchorId == R.id.activity_main_purpletv) {
+            return createPurpleToolTip();
+        } else {
+            return createOrangeToolTip();
+        }
+    }
+
+    private ToolTip createRedToolTip() {
+        return new ToolTip()
                 .withText("A beautiful Button")
                 .withColor(getResources().getColor(R.color.holo_red))
                 .withShadow();
+    }
 
-        mRedToolTipView = mToolTipFrameLayout.showToolTipForView(toolTip, findViewById(R.id.activity_main_redtv));
+    private void addRedToolTipView() {
+        mRedToolTipView = mToolTipFrameLayout.showToolTipForView(createRedToolTip(), findViewById(R.id.activity_main_redtv));
         mRedToolTipView.setOnToolTipViewClickedListener(this);
     }
 
-    private void addGreenToolTipView() {
-        ToolTip toolTip = new ToolTip()
+    private ToolTip createGreenToolTip() {
+        return new ToolTip()
                 .withText("Another beautiful Button!")
-                .withColor(getResources().getColor(R.color.holo_green));
+                .withColor(getResources().getColor(R.color.holo_green))
+                .withRenderMode(ToolTip.RenderMode.DRAWN);
+    }
 
-        mGreenToolTipView = mToolTipFrameLayout.showToolTipForView(toolTip, findViewById(R.id.activity_main_greentv));
+    private void addGreenToolTipView() {
+        mGreenToolTipView = mToolTipFrameLayout.showToolTipForView(createGreenToolTip(), findViewById(R.id.activity_main_greentv));
         mGreenToolTipView.setOnToolTipViewClickedListener(this);
     }
 
-    private void addBlueToolTipView() {
-        ToolTip toolTip = new ToolTip()
+    private ToolTip createBlueToolTip() {
+        return new ToolTip()
                 .withText("Moarrrr buttons!")
                 .withColor(getResources().getColor(R.color.holo_blue))
                 .withAnimationType(ToolTip.AnimationType.FROM_TOP);
+    }
 
-        mBlueToolTipView = mToolTipFrameLayout.showToolTipForView(toolTip, findViewById(R.id.activity_main_bluetv));
+    private void addBlueToolTipView() {
+        mBlueToolTipView = mToolTipFrameLayout.showToolTipForView(createBlueToolTip(), findViewById(R.id.activity_main_bluetv));
         mBlueToolTipView.setOnToolTipViewClickedListener(this);
     }
 
-    private void addPurpleToolTipView() {
-        ToolTip toolTip = new ToolTip()
-                .withContentView(LayoutInflater.from(this).inflate(R.layout.custom_tooltip, null))
+    private ToolTip createPurpleToolTip() {
+        return new ToolTip()
+                .withContentView(R.layout.custom_tooltip)
                 .withColor(getResources().getColor(R.color.holo_purple))
                 .withAnimationType(ToolTip.AnimationType.NONE);
+    }
 
-        mPurpleToolTipView = mToolTipFrameLayout.showToolTipForView(toolTip, findViewById(R.id.activity_main_purpletv));
+    private void addPurpleToolTipView() {
+        mPurpleToolTipView = mToolTipFrameLayout.showToolTipForView(createPurpleToolTip(), findViewById(R.id.activity_main_purpletv));
         mPurpleToolTipView.setOnToolTipViewClickedListener(this);
     }
 
-    private void addOrangeToolTipView() {
-        ToolTip toolTip = new ToolTip()
+    private ToolTip createOrangeToolTip() {
+        return new ToolTip()
                 .withText("Tap me!")
                 .withColor(getResources().getColor(R.color.holo_orange));
+    }
 
-        mOrangeToolTipView = mToolTipFrameLayout.showToolTipForView(toolTip, findViewById(R.id.activity_main_orangetv));
+    private void addOrangeToolTipView() {
+        mOrangeToolTipView = mToolTipFrameLayout.showToolTipForView(createOrangeToolTip(), findViewById(R.id.activity_main_orangetv));
         mOrangeToolTipView.setOnToolTipViewClickedListener(this);
     }
 
@@ -163,6 +229,25 @@ public class MainActivity extends Activity implements View.OnClickListener, Tool
         }
     }
 
+    @Override
+    public void onScheduledToolTipShown(final ToolTipView toolTipView, final View view) {
+        toolTipView.setOnToolTipViewClickedListener(this);
+
+        int id = view.getId();
+        mScheduledAnchorIds.remove(Integer.valueOf(id));
+        if (id == R.id.activity_main_redtv) {
+            mRedToolTipView = toolTipView;
+        } else if (id == R.id.activity_main_greentv) {
+            mGreenToolTipView = toolTipView;
+        } else if (id == R.id.activity_main_bluetv) {
+            mBlueToolTipView = toolTipView;
+        } else if (id == R.id.activity_main_purpletv) {
+            mPurpleToolTipView = toolTipView;
+        } else if (id == R.id.activity_main_orangetv) {
+            mOrangeToolTipView = toolTipView;
+        }
+    }
+
     @Override
     public void onToolTipViewClicked(final ToolTipView toolTipView) {
         if (mRedToolTipView == toolTipView) {
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips.benchmarks;
+
+import com.nhaarman.supertooltips.ToolTipPlacement;
+import com.nhaarman.supertooltips.ToolTipPlacementEngine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how many ToolTips per second {@link ToolTipPlacementEngine} can
+ * place, for synthetic anchors and ToolTip sizes on common screen sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PlacementBenchmark {
+
+    /**
+     * The number of synthetic ToolTips, a power of two.
+     */
+    private static final int TOOLTIP_COUNT = 1024;
+
+    private static final int STATUS_BAR_HEIGHT = 50;
+    private static final int POINTER_WIDTH = 30;
+
+    @Param({"480x800", "720x1280", "1080x1920", "1600x2560"})
+    public String mScreenSize;
+
+    private final int[] mAnchorXs = new int[TOOLTIP_COUNT];
+    private final int[] mAnchorYs = new int[TOOLTIP_COUNT];
+    private final int[] mAnchorWidths = new int[TOOLTIP_COUNT];
+    private final int[] mAnchorHeights = new int[TOOLTIP_COUNT];
+    private final int[] mToolTipWidths = new int[TOOLTIP_COUNT];
+    private final int[] mToolTipHeights = new int[TOOLTIP_COUNT];
+
+    private final ToolTipPlacement mPlacement = new ToolTipPlacement();
+
+    private int mScreenWidth;
+    private int mIndex;
+
+    @Setup
+    public void setUp() {
+        final String[] size = mScreenSize.split("x");
+        mScreenWidth = Integer.parseInt(size[0]);
+        final int screenHeight = Integer.parseInt(size[1]);
+
+        final Random random = new Random(42);
+        for (int i = 0; i < TOOLTIP_COUNT; i++) {
+            mAnchorWidths[i] = 48 + random.nextInt(mScreenWidth / 2);
+            mAnchorHeights[i] = 48 + random.nextInt(96);
+            mAnchorXs[i] = random.nextInt(mScreenWidth - mAnchorWidths[i]);
+            mAnchorYs[i] = STATUS_BAR_HEIGHT + random.nextInt(screenHeight - STATUS_BAR_HEIGHT - mAnchorHeights[i]);
+            mToolTipWidths[i] = 2 * POINTER_WIDTH + random.nextInt(mScreenWidth - 2 * POINTER_WIDTH);
+            mToolTipHeights[i] = 60 + random.nextInt(240);
+        }
+    }
+
+    @Benchmark
+    public ToolTipPlacement place() {
+        final int i = mIndex++ & TOOLTIP_COUNT - 1;
+        return ToolTipPlacementEngine.place(
+                mAnchorXs[i], mAnchorYs[i], mAnchorWidths[i], mAnchorHeights[i],
+                0, STATUS_BAR_HEIGHT, mScreenWidth,
+                mToolTipWidths[i], mToolTipHeights[i], POINTER_WIDTH,
+                mPlacement
+        );
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips.benchmarks;
+
+import com.nhaarman.supertooltips.ToolTipPlacement;
+import com.nhaarman.supertooltips.ToolTipPlacementEngine;
+import com.nhaarman.supertooltips.ToolTipSpatialIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to place a number of ToolTips that avoid
+ * overlapping each other, as they would be placed when shown together.
+ * Each ToolTip is checked against the ToolTips placed before it using a
+ * {@link ToolTipSpatialIndex}. The anchors are spread over the screen with
+ * a constant density, so the score grows linearly with the number of
+ * ToolTips: doubling it doubles the score, where checking every ToolTip
+ * against every other would quadruple it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlacementScalingBenchmark {
+
+    private static final int SCREEN_WIDTH = 1080;
+
+    /**
+     * The screen height per ToolTip, so that ToolTips are as dense for every ToolTip count.
+     */
+    private static final int HEIGHT_PER_TOOLTIP = 40;
+
+    private static final int ANCHOR_WIDTH = 96;
+    private static final int ANCHOR_HEIGHT = 96;
+    private static final int TOOLTIP_WIDTH = 320;
+    private static final int TOOLTIP_HEIGHT = 120;
+    private static final int POINTER_WIDTH = 30;
+
+    @Param({"25", "50", "100", "200", "400"})
+    public int mToolTipCount;
+
+    private final ToolTipSpatialIndex<Integer> mIndex = new ToolTipSpatialIndex<>();
+    private final ToolTipPlacement mPlacement = new ToolTipPlacement();
+
+    private int[] mAnchorXs;
+    private int[] mAnchorYs;
+    private Integer[] mKeys;
+    private int mScreenHeight;
+
+    @Setup
+    public void setUp() {
+        mScreenHeight = mToolTipCount * HEIGHT_PER_TOOLTIP;
+        mAnchorXs = new int[mToolTipCount];
+        mAnchorYs = new int[mToolTipCount];
+        mKeys = new Integer[mToolTipCount];
+
+        final Random random = new Random(42);
+        for (int i = 0; i < mToolTipCount; i++) {
+            mAnchorXs[i] = random.nextInt(SCREEN_WIDTH - ANCHOR_WIDTH);
+            mAnchorYs[i] = random.nextInt(mScreenHeight - ANCHOR_HEIGHT);
+            mKeys[i] = i;
+        }
+    }
+
+    @Benchmark
+    public int placeAll() {
+        mIndex.clear();
+
+        int belowCount = 0;
+        for (int i = 0; i < mToolTipCount; i++) {
+            ToolTipPlacementEngine.place(
+                    mAnchorXs[i], mAnchorYs[i], ANCHOR_WIDTH, ANCHOR_HEIGHT,
+                    0, 0, SCREEN_WIDTH,
+                    TOOLTIP_WIDTH, TOOLTIP_HEIGHT, POINTER_WIDTH,
+                    mIndex, mKeys[i],
+                    mPlacement
+            );
+            mIndex.put(mKeys[i], mPlacement.getX(), mPlacement.getY(), mPlacement.getX() + TOOLTIP_WIDTH, mPlacement.getY() + TOOLTIP_HEIGHT);
+
+            if (mPlacement.isShowBelow()) {
+                belowCount++;
+            }
+        }
+        return belowCount;
+    }
+}
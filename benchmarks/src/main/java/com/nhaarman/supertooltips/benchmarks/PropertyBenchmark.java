@@ -0,0 +1,184 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the two ways a ToolTip animation frame can apply its five
+ * property values: by name through reflected setters and boxed values, like
+ * ObjectAnimator did before, and through typed accessors, like
+ * ToolTipViewProperty does now. A View cannot be created on a plain JVM, so
+ * the values are set on a stand-in with the same setters.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PropertyBenchmark {
+
+    private static final String[] PROPERTY_NAMES = {"translationX", "translationY", "scaleX", "scaleY", "alpha"};
+
+    private static final Property[] PROPERTIES = {new TranslationX(), new TranslationY(), new ScaleX(), new ScaleY(), new Alpha()};
+
+    private final Target mTarget = new Target();
+
+    private final Method[] mSetters = new Method[PROPERTY_NAMES.length];
+    private final Object[] mArguments = new Object[1];
+
+    private float mFraction;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        for (int i = 0; i < PROPERTY_NAMES.length; i++) {
+            mSetters[i] = lookUpSetter(PROPERTY_NAMES[i]);
+        }
+    }
+
+    /**
+     * Applies a frame through setters that were looked up when the animation started.
+     */
+    @Benchmark
+    public Target applyByName() throws InvocationTargetException, IllegalAccessException {
+        final float fraction = nextFraction();
+        for (int i = 0; i < mSetters.length; i++) {
+            mArguments[0] = fraction;
+            mSetters[i].invoke(mTarget, mArguments);
+        }
+        return mTarget;
+    }
+
+    @Benchmark
+    public Target applyTyped() {
+        final float fraction = nextFraction();
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            PROPERTIES[i].set(mTarget, fraction);
+        }
+        return mTarget;
+    }
+
+    /**
+     * Looks up the setters by name, which animating by name does for every animation that starts.
+     */
+    @Benchmark
+    public Method[] startByName() throws NoSuchMethodException {
+        final Method[] setters = new Method[PROPERTY_NAMES.length];
+        for (int i = 0; i < PROPERTY_NAMES.length; i++) {
+            setters[i] = lookUpSetter(PROPERTY_NAMES[i]);
+        }
+        return setters;
+    }
+
+    private float nextFraction() {
+        mFraction += 0.0625f;
+        if (mFraction > 1) {
+            mFraction = 0;
+        }
+        return mFraction;
+    }
+
+    private static Method lookUpSetter(final String propertyName) throws NoSuchMethodException {
+        final String setterName = "set" + Character.toUpperCase(propertyName.charAt(0)) + propertyName.substring(1);
+        return Target.class.getMethod(setterName, float.class);
+    }
+
+    /**
+     * Has the setters of the View properties ToolTips are animated with.
+     */
+    public static class Target {
+
+        private float mTranslationX;
+        private float mTranslationY;
+        private float mScaleX;
+        private float mScaleY;
+        private float mAlpha;
+
+        public void setTranslationX(final float translationX) {
+            mTranslationX = translationX;
+        }
+
+        public void setTranslationY(final float translationY) {
+            mTranslationY = translationY;
+        }
+
+        public void setScaleX(final float scaleX) {
+            mScaleX = scaleX;
+        }
+
+        public void setScaleY(final float scaleY) {
+            mScaleY = scaleY;
+        }
+
+        public void setAlpha(final float alpha) {
+            mAlpha = alpha;
+        }
+    }
+
+    private abstract static class Property {
+
+        abstract void set(Target target, float value);
+    }
+
+    private static class TranslationX extends Property {
+
+        @Override
+        void set(final Target target, final float value) {
+            target.setTranslationX(value);
+        }
+    }
+
+    private static class TranslationY extends Property {
+
+        @Override
+        void set(final Target target, final float value) {
+            target.setTranslationY(value);
+        }
+    }
+
+    private static class ScaleX extends Property {
+
+        @Override
+        void set(final Target target, final float value) {
+            target.setScaleX(value);
+        }
+    }
+
+    private static class ScaleY extends Property {
+
+        @Override
+        void set(final Target target, final float value) {
+            target.setScaleY(value);
+        }
+    }
+
+    private static class Alpha extends Property {
+
+        @Override
+        void set(final Target target, final float value) {
+            target.setAlpha(value);
+        }
+    }
+}
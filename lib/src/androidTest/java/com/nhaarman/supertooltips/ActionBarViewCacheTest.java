@@ -0,0 +1,124 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.test.AndroidTestCase;
+import android.view.View;
+
+public class ActionBarViewCacheTest extends AndroidTestCase {
+
+    private CountingIdentifierResolver mIdentifierResolver;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mIdentifierResolver = new CountingIdentifierResolver();
+        ActionBarViewCache.setIdentifierResolver(mIdentifierResolver);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ActionBarViewCache.setIdentifierResolver(null);
+        super.tearDown();
+    }
+
+    public void testActionBarTitleIdIsResolvedOnce() {
+        final int titleResId = ActionBarViewCache.getActionBarTitleResId();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(titleResId, ActionBarViewCache.getActionBarTitleResId());
+        }
+
+        assertEquals(1, mIdentifierResolver.mCallCount);
+    }
+
+    public void testActionBarIdIsResolvedOnce() {
+        final int actionBarResId = ActionBarViewCache.getActionBarResId();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(actionBarResId, ActionBarViewCache.getActionBarResId());
+        }
+
+        assertEquals(1, mIdentifierResolver.mCallCount);
+    }
+
+    public void testMissingIdIsResolvedOnce() {
+        mIdentifierResolver.mResolveToZero = true;
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0, ActionBarViewCache.getActionBarTitleResId());
+        }
+
+        assertEquals(1, mIdentifierResolver.mCallCount);
+    }
+
+    public void testInvalidatingRemovesDetachListener() {
+        final AttachStateListenerCountingView decorView = new AttachStateListenerCountingView(getContext());
+
+        for (int i = 0; i < 10; i++) {
+            ActionBarViewCache.getCachedViews(decorView);
+            ActionBarViewCache.getCachedViews(decorView);
+            ActionBarViewCache.invalidate(decorView);
+        }
+
+        assertEquals(0, decorView.mListenerCount);
+    }
+
+    public void testDetachListenerIsAddedOncePerDecorView() {
+        final AttachStateListenerCountingView decorView = new AttachStateListenerCountingView(getContext());
+
+        for (int i = 0; i < 10; i++) {
+            ActionBarViewCache.getCachedViews(decorView);
+        }
+
+        assertEquals(1, decorView.mListenerCount);
+        ActionBarViewCache.invalidate(decorView);
+    }
+
+    private static class AttachStateListenerCountingView extends View {
+
+        private int mListenerCount;
+
+        AttachStateListenerCountingView(final Context context) {
+            super(context);
+        }
+
+        @Override
+        public void addOnAttachStateChangeListener(final OnAttachStateChangeListener listener) {
+            super.addOnAttachStateChangeListener(listener);
+            mListenerCount++;
+        }
+
+        @Override
+        public void removeOnAttachStateChangeListener(final OnAttachStateChangeListener listener) {
+            super.removeOnAttachStateChangeListener(listener);
+            mListenerCount--;
+        }
+    }
+
+    private static class CountingIdentifierResolver implements ActionBarViewCache.IdentifierResolver {
+
+        private int mCallCount;
+        private boolean mResolveToZero;
+
+        @Override
+        public int getIdentifier(final String name, final String defType, final String defPackage) {
+            mCallCount++;
+            return mResolveToZero ? 0 : Resources.getSystem().getIdentifier(name, defType, defPackage);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+
+import junit.framework.TestCase;
+
+public class ColorFilterCacheTest extends TestCase {
+
+    private ColorFilterCache mCache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mCache = ColorFilterCache.getInstance();
+        mCache.setMaxSize(0);
+        mCache.setMaxSize(2);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        mCache.setMaxSize(ColorFilterCache.DEFAULT_MAX_SIZE);
+        super.tearDown();
+    }
+
+    public void testFilterIsSharedPerColor() {
+        final PorterDuffColorFilter colorFilter = mCache.get(0xffff0000, PorterDuff.Mode.MULTIPLY);
+
+        assertSame(colorFilter, mCache.get(0xffff0000, PorterDuff.Mode.MULTIPLY));
+        assertNotSame(colorFilter, mCache.get(0xff00ff00, PorterDuff.Mode.MULTIPLY));
+        assertNotSame(colorFilter, mCache.get(0xffff0000, PorterDuff.Mode.SRC_ATOP));
+    }
+
+    public void testTransparentFilterIsCached() {
+        final PorterDuffColorFilter colorFilter = mCache.get(0, PorterDuff.Mode.MULTIPLY);
+
+        assertSame(colorFilter, mCache.get(0, PorterDuff.Mode.MULTIPLY));
+        assertEquals(1, mCache.getSize());
+    }
+
+    public void testLeastRecentlyUsedFilterIsEvicted() {
+        final PorterDuffColorFilter red = mCache.get(0xffff0000, PorterDuff.Mode.MULTIPLY);
+        final PorterDuffColorFilter green = mCache.get(0xff00ff00, PorterDuff.Mode.MULTIPLY);
+        mCache.get(0xffff0000, PorterDuff.Mode.MULTIPLY);
+        mCache.get(0xff0000ff, PorterDuff.Mode.MULTIPLY);
+
+        assertEquals(2, mCache.getSize());
+        assertSame(red, mCache.get(0xffff0000, PorterDuff.Mode.MULTIPLY));
+        assertNotSame(green, mCache.get(0xff00ff00, PorterDuff.Mode.MULTIPLY));
+    }
+
+    public void testShrinkingKeepsMostRecentlyUsedFilters() {
+        mCache.setMaxSize(3);
+        mCache.get(0xffff0000, PorterDuff.Mode.MULTIPLY);
+        final PorterDuffColorFilter green = mCache.get(0xff00ff00, PorterDuff.Mode.MULTIPLY);
+        final PorterDuffColorFilter blue = mCache.get(0xff0000ff, PorterDuff.Mode.MULTIPLY);
+
+        mCache.setMaxSize(2);
+
+        assertEquals(2, mCache.getSize());
+        assertSame(green, mCache.get(0xff00ff00, PorterDuff.Mode.MULTIPLY));
+        assertSame(blue, mCache.get(0xff0000ff, PorterDuff.Mode.MULTIPLY));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.view.View;
+
+/**
+ * A ToolTipRelativeLayout that counts its layout passes, and can run them
+ * without being attached to a window.
+ */
+class CountingToolTipRelativeLayout extends ToolTipRelativeLayout {
+
+    /**
+     * The maximum number of layout passes {@link #layOut(int, int)} runs, so that a layout loop fails a test instead of hanging it.
+     */
+    private static final int MAX_LAYOUT_PASSES = 10;
+
+    private int mLayoutCount;
+
+    CountingToolTipRelativeLayout(final Context context) {
+        super(context);
+    }
+
+    CountingToolTipRelativeLayout(final Context context, final boolean preHoneycomb) {
+        super(context, preHoneycomb);
+    }
+
+    @Override
+    protected void onLayout(final boolean changed, final int l, final int t, final int r, final int b) {
+        mLayoutCount++;
+        super.onLayout(changed, l, t, r, b);
+    }
+
+    int getLayoutCount() {
+        return mLayoutCount;
+    }
+
+    void resetLayoutCount() {
+        mLayoutCount = 0;
+    }
+
+    /**
+     * Measures and lays out this layout at given size for as long as a
+     * layout is requested, like the View hierarchy would in consecutive
+     * frames.
+     */
+    void layOut(final int width, final int height) {
+        for (int i = 0; i < MAX_LAYOUT_PASSES && isLayoutRequested(); i++) {
+            measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+            layout(0, 0, width, height);
+        }
+    }
+}
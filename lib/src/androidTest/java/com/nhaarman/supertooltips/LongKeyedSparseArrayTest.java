@@ -0,0 +1,67 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import junit.framework.TestCase;
+
+public class LongKeyedSparseArrayTest extends TestCase {
+
+    private LongKeyedSparseArray<String> mArray;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mArray = new LongKeyedSparseArray<>();
+    }
+
+    public void testValuesAreFoundByKey() {
+        final long[] keys = {42, -1, Long.MAX_VALUE, 0, Long.MIN_VALUE, 7, 1L << 40, 3, 99, 12, -100};
+        for (final long key : keys) {
+            mArray.put(key, String.valueOf(key));
+        }
+
+        assertEquals(keys.length, mArray.size());
+        for (final long key : keys) {
+            assertEquals(String.valueOf(key), mArray.get(key));
+        }
+        assertNull(mArray.get(1));
+    }
+
+    public void testPutReplacesValue() {
+        mArray.put(1, "a");
+        mArray.put(1, "b");
+
+        assertEquals(1, mArray.size());
+        assertEquals("b", mArray.get(1));
+    }
+
+    public void testRemovedValueIsGone() {
+        for (long key = 0; key < 20; key++) {
+            mArray.put(key, String.valueOf(key));
+        }
+
+        for (long key = 0; key < 20; key += 2) {
+            mArray.remove(key);
+        }
+        mArray.remove(100);
+
+        assertEquals(10, mArray.size());
+        for (long key = 0; key < 20; key++) {
+            assertEquals(key % 2 == 0 ? null : String.valueOf(key), mArray.get(key));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.test.AndroidTestCase;
+import android.view.View;
+import android.widget.RelativeLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ToolTipLayoutPassTest extends AndroidTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+
+    private static final int ANCHOR_LEFT = 40;
+    private static final int ANCHOR_TOP = 400;
+
+    private CountingToolTipRelativeLayout mToolTipRelativeLayout;
+    private View mAnchorView;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mToolTipRelativeLayout = new CountingToolTipRelativeLayout(getContext());
+        mAnchorView = new View(getContext());
+        final RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams(100, 50);
+        params.leftMargin = ANCHOR_LEFT;
+        params.topMargin = ANCHOR_TOP;
+        mToolTipRelativeLayout.addView(mAnchorView, params);
+
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+        mToolTipRelativeLayout.resetLayoutCount();
+    }
+
+    public void testShowingToolTipTakesOneLayoutPass() {
+        mToolTipRelativeLayout.showToolTipForView(createToolTip(), mAnchorView);
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+
+        assertEquals(1, mToolTipRelativeLayout.getLayoutCount());
+    }
+
+    public void testToolTipIsPositionedInFirstLayoutPass() {
+        final ToolTipView toolTipView = mToolTipRelativeLayout.showToolTipForView(createToolTip(), mAnchorView);
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+
+        assertTrue(toolTipView.getHeight() > 0);
+        assertEquals(ANCHOR_TOP, (int) toolTipView.getY() + toolTipView.getHeight());
+    }
+
+    public void testShowingToolTipsTogetherTakesOneLayoutPass() {
+        final ToolTip[] toolTips = {createToolTip(), createToolTip(), createToolTip()};
+        for (final ToolTip toolTip : toolTips) {
+            mToolTipRelativeLayout.showToolTipForView(toolTip, mAnchorView);
+        }
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+
+        assertEquals(1, mToolTipRelativeLayout.getLayoutCount());
+    }
+
+    public void testShowingToolTipBatchTakesOneLayoutPass() {
+        final int[] anchorTops = {200, ANCHOR_TOP, 600};
+        final List<View> anchorViews = new ArrayList<>();
+        final List<ToolTip> toolTips = new ArrayList<>();
+        for (final int anchorTop : anchorTops) {
+            final View anchorView = new View(getContext());
+            final RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams(100, 50);
+            params.leftMargin = ANCHOR_LEFT;
+            params.topMargin = anchorTop;
+            mToolTipRelativeLayout.addView(anchorView, params);
+            anchorViews.add(anchorView);
+            toolTips.add(createToolTip());
+        }
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+        mToolTipRelativeLayout.resetLayoutCount();
+
+        final List<ToolTipView> toolTipViews = mToolTipRelativeLayout.showToolTips(toolTips, anchorViews);
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+
+        assertEquals(1, mToolTipRelativeLayout.getLayoutCount());
+        assertEquals(anchorTops.length, toolTipViews.size());
+        for (int i = 0; i < anchorTops.length; i++) {
+            final ToolTipView toolTipView = toolTipViews.get(i);
+            assertTrue(toolTipView.getHeight() > 0);
+            assertEquals(anchorTops[i], (int) toolTipView.getY() + toolTipView.getHeight());
+        }
+    }
+
+    public void testCachedTextIsLookedUpOnceAcrossLayoutPasses() {
+        final ToolTipBitmapCache bitmapCache = ToolTipBitmapCache.getInstance();
+        bitmapCache.clear();
+        final int hitCount = bitmapCache.getHitCount();
+        final int missCount = bitmapCache.getMissCount();
+
+        final ToolTip toolTip = createToolTip()
+                .withRenderMode(ToolTip.RenderMode.DRAWN)
+                .withBitmapCaching();
+        final ToolTipView toolTipView = mToolTipRelativeLayout.showToolTipForView(toolTip, mAnchorView);
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+        for (int i = 0; i < 3; i++) {
+            toolTipView.requestLayout();
+            mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+        }
+
+        assertEquals(missCount + 1, bitmapCache.getMissCount());
+        assertEquals(hitCount, bitmapCache.getHitCount());
+        assertTrue(bitmapCache.getBytes() > 0);
+    }
+
+    private static ToolTip createToolTip() {
+        return new ToolTip()
+                .withText("ToolTip")
+                .withAnimationType(ToolTip.AnimationType.NONE);
+    }
+}
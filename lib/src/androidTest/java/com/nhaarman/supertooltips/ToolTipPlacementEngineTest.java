@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import junit.framework.TestCase;
+
+public class ToolTipPlacementEngineTest extends TestCase {
+
+    private static final int SCREEN_WIDTH = 1080;
+
+    private static final int TOOLTIP_WIDTH = 200;
+    private static final int TOOLTIP_HEIGHT = 100;
+    private static final int POINTER_WIDTH = 20;
+
+    private static final int ANCHOR_WIDTH = 100;
+    private static final int ANCHOR_HEIGHT = 50;
+
+    /**
+     * The distance between adjacent anchors: their ToolTips overlap unless they are shifted or shown below.
+     */
+    private static final int ANCHOR_SPACING = 150;
+
+    private final ToolTipSpatialIndex<Integer> mOccupied = new ToolTipSpatialIndex<>();
+
+    public void testToolTipsOfAdjacentAnchorsDoNotOverlap() {
+        final int anchorCount = 6;
+        final ToolTipPlacement[] placements = new ToolTipPlacement[anchorCount];
+        for (int i = 0; i < anchorCount; i++) {
+            placements[i] = place(i, 100 + i * ANCHOR_SPACING, 400);
+        }
+
+        for (int i = 0; i < anchorCount; i++) {
+            final ToolTipPlacement placement = placements[i];
+            assertEquals(0, mOccupied.getOverlapArea(placement.getX(), placement.getY(),
+                    placement.getX() + TOOLTIP_WIDTH, placement.getY() + TOOLTIP_HEIGHT, i));
+        }
+    }
+
+    public void testToolTipIsShiftedAwayFromNeighbour() {
+        place(0, 300, 400);
+        final ToolTipPlacement placement = place(1, 450, 400);
+
+        assertFalse(placement.isShowBelow());
+        assertTrue(placement.getX() > 450 + ANCHOR_WIDTH / 2 - TOOLTIP_WIDTH / 2);
+        assertEquals(0, mOccupied.getOverlapArea(placement.getX(), placement.getY(),
+                placement.getX() + TOOLTIP_WIDTH, placement.getY() + TOOLTIP_HEIGHT, 1));
+        assertTrue(placement.getPointerX() >= 0);
+        assertTrue(placement.getPointerX() + POINTER_WIDTH <= TOOLTIP_WIDTH);
+    }
+
+    /**
+     * Places a ToolTip for an anchor at given position, and marks it as occupied.
+     */
+    private ToolTipPlacement place(final int key, final int anchorX, final int anchorY) {
+        final ToolTipPlacement placement = ToolTipPlacementEngine.place(anchorX, anchorY, ANCHOR_WIDTH, ANCHOR_HEIGHT, 0, 0, SCREEN_WIDTH,
+                TOOLTIP_WIDTH, TOOLTIP_HEIGHT, POINTER_WIDTH, mOccupied, key, new ToolTipPlacement());
+        mOccupied.put(key, placement.getX(), placement.getY(), placement.getX() + TOOLTIP_WIDTH, placement.getY() + TOOLTIP_HEIGHT);
+        return placement;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.RelativeLayout;
+
+/**
+ * Covers the pre-Honeycomb path, in which ToolTipViews are only translated
+ * to where they are drawn, and the ToolTipRelativeLayout passes touches on
+ * to them there. The path is forced, so these tests run on any device.
+ */
+public class ToolTipPreHoneycombTest extends AndroidTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+
+    private static final int ANCHOR_LEFT = 40;
+    private static final int ANCHOR_TOP = 400;
+    private static final int ANCHOR_WIDTH = 100;
+    private static final int ANCHOR_HEIGHT = 50;
+
+    private CountingToolTipRelativeLayout mToolTipRelativeLayout;
+    private View mAnchorView;
+    private View mTopAnchorView;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mToolTipRelativeLayout = new CountingToolTipRelativeLayout(getContext(), true);
+        mAnchorView = addAnchorView(ANCHOR_TOP);
+        mTopAnchorView = addAnchorView(0);
+
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+        mToolTipRelativeLayout.resetLayoutCount();
+    }
+
+    private View addAnchorView(final int top) {
+        final View anchorView = new View(getContext());
+        final RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams(ANCHOR_WIDTH, ANCHOR_HEIGHT);
+        params.leftMargin = ANCHOR_LEFT;
+        params.topMargin = top;
+        mToolTipRelativeLayout.addView(anchorView, params);
+        return anchorView;
+    }
+
+    public void testShowingToolTipBelowAnchorTakesOneLayoutPass() {
+        final ToolTipView toolTipView = mToolTipRelativeLayout.showToolTipForView(createToolTip(ToolTip.AnimationType.NONE), mTopAnchorView);
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+
+        assertEquals(ANCHOR_HEIGHT, (int) toolTipView.getY());
+        assertEquals(1, mToolTipRelativeLayout.getLayoutCount());
+    }
+
+    public void testAppearAnimationEndsAtFinalPositionWithoutLayoutPass() {
+        final ToolTipView toolTipView = mToolTipRelativeLayout.showToolTipForView(createToolTip(ToolTip.AnimationType.FROM_TOP), mAnchorView);
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+        mToolTipRelativeLayout.resetLayoutCount();
+        assertTrue(toolTipView.getY() < ANCHOR_TOP - toolTipView.getHeight());
+
+        /* Step the last frame of the animation ourselves, since the scheduled frames only run once attached. */
+        SystemClock.sleep(ToolTipAnimationDriver.DURATION + 50);
+        mToolTipRelativeLayout.getAnimationDriver().run();
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+
+        assertEquals(ANCHOR_TOP, (int) toolTipView.getY() + toolTipView.getHeight());
+        assertEquals(1f, toolTipView.getScaleY());
+        assertEquals(0, mToolTipRelativeLayout.getLayoutCount());
+    }
+
+    public void testTouchAtDrawnPositionReachesToolTipView() {
+        final ToolTipView toolTipView = mToolTipRelativeLayout.showToolTipForView(createToolTip(ToolTip.AnimationType.NONE), mAnchorView);
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+        final RecordingOnTouchListener listener = new RecordingOnTouchListener();
+        toolTipView.setOnTouchListener(listener);
+
+        final int centerX = toolTipView.getWidth() / 2;
+        final int centerY = toolTipView.getHeight() / 2;
+        tap(toolTipView.getX() + centerX, toolTipView.getY() + centerY);
+
+        assertEquals(2, listener.mTouchCount);
+        assertEquals(centerX, (int) listener.mLastX);
+        assertEquals(centerY, (int) listener.mLastY);
+    }
+
+    public void testTouchAtLayoutPositionDoesNotReachToolTipView() {
+        final ToolTipView toolTipView = mToolTipRelativeLayout.showToolTipForView(createToolTip(ToolTip.AnimationType.NONE), mAnchorView);
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+        final RecordingOnTouchListener listener = new RecordingOnTouchListener();
+        toolTipView.setOnTouchListener(listener);
+
+        assertTrue(toolTipView.getY() > toolTipView.getTop() + 1);
+        tap(toolTipView.getLeft() + 1, toolTipView.getTop() + 1);
+
+        assertEquals(0, listener.mTouchCount);
+    }
+
+    private void tap(final float x, final float y) {
+        final long downTime = SystemClock.uptimeMillis();
+        final MotionEvent down = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, x, y, 0);
+        final MotionEvent up = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_UP, x, y, 0);
+        mToolTipRelativeLayout.dispatchTouchEvent(down);
+        mToolTipRelativeLayout.dispatchTouchEvent(up);
+        down.recycle();
+        up.recycle();
+    }
+
+    private static ToolTip createToolTip(final ToolTip.AnimationType animationType) {
+        return new ToolTip()
+                .withText("ToolTip")
+                .withAnimationType(animationType);
+    }
+
+    private static class RecordingOnTouchListener implements View.OnTouchListener {
+
+        private int mTouchCount;
+        private float mLastX;
+        private float mLastY;
+
+        @Override
+        public boolean onTouch(final View view, final MotionEvent event) {
+            mTouchCount++;
+            mLastX = event.getX();
+            mLastY = event.getY();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.os.Parcelable;
+import android.test.AndroidTestCase;
+import android.view.View;
+import android.widget.RelativeLayout;
+
+public class ToolTipSavedStateTest extends AndroidTestCase {
+
+    private static final int WIDTH = 480;
+    private static final int HEIGHT = 800;
+
+    private CountingToolTipRelativeLayout mToolTipRelativeLayout;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        mToolTipRelativeLayout = new CountingToolTipRelativeLayout(getContext());
+        final View anchorView = new View(getContext());
+        anchorView.setId(1);
+        final RelativeLayout.LayoutParams params = new RelativeLayout.LayoutParams(100, 50);
+        params.topMargin = 400;
+        mToolTipRelativeLayout.addView(anchorView, params);
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+
+        mToolTipRelativeLayout.showToolTipForView(new ToolTip().withText("ToolTip").withAnimationType(ToolTip.AnimationType.NONE), anchorView);
+        mToolTipRelativeLayout.layOut(WIDTH, HEIGHT);
+    }
+
+    public void testToolTipsAreNotSavedByDefault() {
+        assertFalse(mToolTipRelativeLayout.isSaveToolTipsEnabled());
+        assertFalse(mToolTipRelativeLayout.onSaveInstanceState() instanceof ToolTipRelativeLayout.SavedState);
+    }
+
+    public void testToolTipsAreSavedWhenEnabled() {
+        mToolTipRelativeLayout.setSaveToolTipsEnabled(true);
+
+        final Parcelable state = mToolTipRelativeLayout.onSaveInstanceState();
+
+        assertTrue(state instanceof ToolTipRelativeLayout.SavedState);
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.content.res.Resources;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.nhaarman.supertooltips.exception.NoOverflowMenuRuntimeException;
+import com.nhaarman.supertooltips.exception.NoTitleViewRuntimeException;
+import com.nhaarman.supertooltips.exception.ViewNotFoundRuntimeException;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Finds the ActionBar Views ToolTips can be shown for. The internal
+ * resource ids are resolved only once per process, and the Views that are
+ * found are cached weakly per Activity window. A cached View is dropped when
+ * it is no longer attached, when the window's decor View is detached, or when
+ * {@link #invalidate(Activity)} is called.
+ */
+final class ActionBarViewCache {
+
+    private static final int UNRESOLVED = -1;
+
+    private static final IdentifierResolver SYSTEM_IDENTIFIER_RESOLVER = new SystemIdentifierResolver();
+
+    private static IdentifierResolver sIdentifierResolver = SYSTEM_IDENTIFIER_RESOLVER;
+    private static int sActionBarTitleResId = UNRESOLVED;
+    private static int sActionBarResId = UNRESOLVED;
+
+    private static final Map<View, CachedViews> CACHED_VIEWS = new WeakHashMap<>();
+
+    private ActionBarViewCache() {
+    }
+
+    /**
+     * @throws NoTitleViewRuntimeException if there is no internal ActionBar title resource id.
+     * @throws ViewNotFoundRuntimeException if the ActionBar title View is not found.
+     */
+    static View findTitleView(final Activity activity) {
+        final int titleResId = getActionBarTitleResId();
+        if (titleResId == 0) {
+            throw new NoTitleViewRuntimeException();
+        }
+
+        final CachedViews cachedViews = getCachedViews(activity);
+        View titleView = get(cachedViews.mTitleView);
+        if (titleView == null) {
+            titleView = activity.getWindow().getDecorView().findViewById(titleResId);
+            if (titleView == null) {
+                throw new ViewNotFoundRuntimeException();
+            }
+            cachedViews.mTitleView = new WeakReference<>(titleView);
+        }
+        return titleView;
+    }
+
+    /**
+     * @throws NoOverflowMenuRuntimeException if the overflow menu button is not found.
+     */
+    static View findOverflowMenuView(final Activity activity) {
+        final CachedViews cachedViews = getCachedViews(activity);
+        View overflowMenuView = get(cachedViews.mOverflowMenuView);
+        if (overflowMenuView == null) {
+            overflowMenuView = lookUpOverflowMenuView((ViewGroup) activity.getWindow().getDecorView());
+            cachedViews.mOverflowMenuView = new WeakReference<>(overflowMenuView);
+        }
+        return overflowMenuView;
+    }
+
+    /**
+     * Drops the cached Views for given Activity.
+     */
+    static void invalidate(final Activity activity) {
+        invalidate(activity.getWindow().getDecorView());
+    }
+
+    /**
+     * Drops the cached Views for given decor View, and stops listening for it to be detached.
+     */
+    @TargetApi(12)
+    static void invalidate(final View decorView) {
+        final CachedViews cachedViews = CACHED_VIEWS.remove(decorView);
+        if (cachedViews != null && cachedViews.mDetachListener != null) {
+            decorView.removeOnAttachStateChangeListener(cachedViews.mDetachListener);
+        }
+    }
+
+    /**
+     * Sets the resolver for the internal resource ids, and forgets the ids
+     * that were resolved before.
+     *
+     * @param identifierResolver
+     *            the resolver, or null to use the system Resources.
+     */
+    static void setIdentifierResolver(final IdentifierResolver identifierResolver) {
+        sIdentifierResolver = identifierResolver == null ? SYSTEM_IDENTIFIER_RESOLVER : identifierResolver;
+        sActionBarTitleResId = UNRESOLVED;
+        sActionBarResId = UNRESOLVED;
+    }
+
+    static int getActionBarTitleResId() {
+        if (sActionBarTitleResId == UNRESOLVED) {
+            sActionBarTitleResId = sIdentifierResolver.getIdentifier(ToolTipRelativeLayout.ACTION_BAR_TITLE, ToolTipRelativeLayout.ID, ToolTipRelativeLayout.ANDROID);
+        }
+        return sActionBarTitleResId;
+    }
+
+    static int getActionBarResId() {
+        if (sActionBarResId == UNRESOLVED) {
+            sActionBarResId = sIdentifierResolver.getIdentifier(ToolTipRelativeLayout.ACTION_BAR, ToolTipRelativeLayout.ID, ToolTipRelativeLayout.ANDROID);
+        }
+        return sActionBarResId;
+    }
+
+    private static CachedViews getCachedViews(final Activity activity) {
+        return getCachedViews(activity.getWindow().getDecorView());
+    }
+
+    @TargetApi(12)
+    static CachedViews getCachedViews(final View decorView) {
+        CachedViews cachedViews = CACHED_VIEWS.get(decorView);
+        if (cachedViews == null) {
+            cachedViews = new CachedViews();
+            CACHED_VIEWS.put(decorView, cachedViews);
+
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+                cachedViews.mDetachListener = new InvalidateOnDetachListener();
+                decorView.addOnAttachStateChangeListener(cachedViews.mDetachListener);
+            }
+        }
+        return cachedViews;
+    }
+
+    /**
+     * @return the referenced View, or null if it is gone or no longer attached.
+     */
+    private static View get(final WeakReference<View> viewReference) {
+        final View view = viewReference == null ? null : viewReference.get();
+        return view == null || view.getWindowToken() == null ? null : view;
+    }
+
+    private static View lookUpOverflowMenuView(final ViewGroup decorView) {
+        final ViewGroup actionBarView = (ViewGroup) decorView.findViewById(getActionBarResId());
+        if (actionBarView == null) {
+            throw new NoOverflowMenuRuntimeException();
+        }
+
+        final ViewGroup actionMenuView = (ViewGroup) findChildWithClassName(actionBarView, ToolTipRelativeLayout.ACTION_MENU_VIEW);
+        if (actionMenuView == null) {
+            throw new NoOverflowMenuRuntimeException();
+        }
+
+        final View overflowMenuButton = findChildWithClassName(actionMenuView, ToolTipRelativeLayout.OVERFLOW_MENU_BUTTON);
+        if (overflowMenuButton == null) {
+            throw new NoOverflowMenuRuntimeException();
+        }
+
+        return overflowMenuButton;
+    }
+
+    private static View findChildWithClassName(final ViewGroup viewGroup, final String simpleClassName) {
+        final int childCount = viewGroup.getChildCount();
+        for (int i = 0; i < childCount; ++i) {
+            final View child = viewGroup.getChildAt(i);
+            if (child.getClass().getSimpleName().equals(simpleClassName)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves resource ids by name, like {@link Resources#getIdentifier(String, String, String)}.
+     */
+    interface IdentifierResolver {
+
+        int getIdentifier(String name, String defType, String defPackage);
+    }
+
+    private static class SystemIdentifierResolver implements IdentifierResolver {
+
+        @Override
+        public int getIdentifier(final String name, final String defType, final String defPackage) {
+            return Resources.getSystem().getIdentifier(name, defType, defPackage);
+        }
+    }
+
+    static class CachedViews {
+
+        private WeakReference<View> mTitleView;
+        private WeakReference<View> mOverflowMenuView;
+
+        /**
+         * The listener that drops these Views when the decor View is detached, or null below API 12.
+         */
+        private InvalidateOnDetachListener mDetachListener;
+    }
+
+    @TargetApi(12)
+    private static class InvalidateOnDetachListener implements View.OnAttachStateChangeListener {
+
+        @Override
+        public void onViewAttachedToWindow(final View view) {
+        }
+
+        @Override
+        public void onViewDetachedFromWindow(final View view) {
+            view.removeOnAttachStateChangeListener(this);
+            CACHED_VIEWS.remove(view);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+
+/**
+ * A least recently used cache of the color filters that tint ToolTip frame
+ * and pointer drawables, keyed by color and {@link PorterDuff.Mode}. Each
+ * ToolTipView applies the shared filter to its own mutated drawables:
+ * sharing a {@link android.graphics.drawable.Drawable.ConstantState} of a
+ * tinted drawable does not carry the tint over for nine-patch frames.
+ * <p/>
+ * Only a handful of colors are used at a time, so the entries are kept in
+ * plain arrays ordered from least to most recently used, and looking up a
+ * filter does not allocate.
+ */
+final class ColorFilterCache {
+
+    static final int DEFAULT_MAX_SIZE = 8;
+
+    private static final ColorFilterCache INSTANCE = new ColorFilterCache();
+
+    private long[] mKeys = new long[DEFAULT_MAX_SIZE];
+    private PorterDuffColorFilter[] mColorFilters = new PorterDuffColorFilter[DEFAULT_MAX_SIZE];
+    private int mSize;
+
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+    private int mHitCount;
+    private int mMissCount;
+
+    private ColorFilterCache() {
+    }
+
+    static ColorFilterCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the color filter for given color and mode. Apply it to a
+     * {@link android.graphics.drawable.Drawable#mutate() mutated} drawable.
+     */
+    PorterDuffColorFilter get(final int color, final PorterDuff.Mode mode) {
+        final long key = ((long) mode.ordinal() << 32) | (color & 0xffffffffL);
+        for (int i = mSize - 1; i >= 0; i--) {
+            if (mKeys[i] == key) {
+                mHitCount++;
+                final PorterDuffColorFilter colorFilter = mColorFilters[i];
+                moveToEnd(i);
+                return colorFilter;
+            }
+        }
+
+        mMissCount++;
+        final PorterDuffColorFilter colorFilter = new PorterDuffColorFilter(color, mode);
+        if (mMaxSize <= 0) {
+            return colorFilter;
+        }
+
+        if (mSize == mMaxSize) {
+            moveToEnd(0);
+            mSize--;
+        }
+        mKeys[mSize] = key;
+        mColorFilters[mSize] = colorFilter;
+        mSize++;
+        return colorFilter;
+    }
+
+    /**
+     * Moves the entry at given index behind all other entries, making it the most recently used one.
+     */
+    private void moveToEnd(final int index) {
+        final long key = mKeys[index];
+        final PorterDuffColorFilter colorFilter = mColorFilters[index];
+        final int lastIndex = mSize - 1;
+        System.arraycopy(mKeys, index + 1, mKeys, index, lastIndex - index);
+        System.arraycopy(mColorFilters, index + 1, mColorFilters, index, lastIndex - index);
+        mKeys[lastIndex] = key;
+        mColorFilters[lastIndex] = colorFilter;
+    }
+
+    void setMaxSize(final int maxSize) {
+        final int newMaxSize = Math.max(0, maxSize);
+        final int keptCount = Math.min(mSize, newMaxSize);
+        final int evictedCount = mSize - keptCount;
+
+        final long[] keys = new long[newMaxSize];
+        final PorterDuffColorFilter[] colorFilters = new PorterDuffColorFilter[newMaxSize];
+        System.arraycopy(mKeys, evictedCount, keys, 0, keptCount);
+        System.arraycopy(mColorFilters, evictedCount, colorFilters, 0, keptCount);
+
+        mKeys = keys;
+        mColorFilters = colorFilters;
+        mSize = keptCount;
+        mMaxSize = newMaxSize;
+    }
+
+    int getMaxSize() {
+        return mMaxSize;
+    }
+
+    int getSize() {
+        return mSize;
+    }
+
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    int getMissCount() {
+        return mMissCount;
+    }
+}
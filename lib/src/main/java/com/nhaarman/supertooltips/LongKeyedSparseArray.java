@@ -0,0 +1,108 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+/**
+ * Maps long keys to Objects without boxing the keys, like
+ * android.util.LongSparseArray, which needs API 16. Keys are kept sorted
+ * and looked up using a binary search, which is efficient for the few
+ * dozen entries ToolTips are registered for.
+ */
+final class LongKeyedSparseArray<E> {
+
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private long[] mKeys = new long[DEFAULT_CAPACITY];
+    private Object[] mValues = new Object[DEFAULT_CAPACITY];
+    private int mSize;
+
+    /**
+     * @return the value for given key, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    E get(final long key) {
+        final int index = indexOf(key);
+        return index < 0 ? null : (E) mValues[index];
+    }
+
+    /**
+     * Maps given key to given value, replacing the previous value for given key if there was one.
+     */
+    void put(final long key, final E value) {
+        int index = indexOf(key);
+        if (index >= 0) {
+            mValues[index] = value;
+            return;
+        }
+
+        index = ~index;
+        if (mSize == mKeys.length) {
+            final long[] keys = new long[mSize * 2];
+            final Object[] values = new Object[mSize * 2];
+            System.arraycopy(mKeys, 0, keys, 0, mSize);
+            System.arraycopy(mValues, 0, values, 0, mSize);
+            mKeys = keys;
+            mValues = values;
+        }
+        System.arraycopy(mKeys, index, mKeys, index + 1, mSize - index);
+        System.arraycopy(mValues, index, mValues, index + 1, mSize - index);
+        mKeys[index] = key;
+        mValues[index] = value;
+        mSize++;
+    }
+
+    /**
+     * Removes the value for given key, if there is one.
+     */
+    void remove(final long key) {
+        final int index = indexOf(key);
+        if (index < 0) {
+            return;
+        }
+
+        System.arraycopy(mKeys, index + 1, mKeys, index, mSize - index - 1);
+        System.arraycopy(mValues, index + 1, mValues, index, mSize - index - 1);
+        mSize--;
+        mValues[mSize] = null;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Like Arrays.binarySearch(long[], int, int, long), which needs API 9.
+     *
+     * @return the index of given key, or {@code ~insertionIndex} if it is not present.
+     */
+    private int indexOf(final long key) {
+        int low = 0;
+        int high = mSize - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            final long middleKey = mKeys[middle];
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return ~low;
+    }
+}
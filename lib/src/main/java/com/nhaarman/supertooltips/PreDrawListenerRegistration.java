@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Registers a {@link ViewTreeObserver.OnPreDrawListener} on the
+ * ViewTreeObserver of a host View while that View is attached to a window.
+ * A detached View hands out a temporary ViewTreeObserver, which the
+ * listener could not be unregistered from later; therefore
+ * {@link #register()} does nothing while the host View is detached, and
+ * should be called again when it is attached. Optionally, an
+ * {@link ViewTreeObserver.OnGlobalLayoutListener} is registered along with
+ * the pre-draw listener.
+ */
+final class PreDrawListenerRegistration {
+
+    private final View mHostView;
+    private final ViewTreeObserver.OnPreDrawListener mListener;
+    private final ViewTreeObserver.OnGlobalLayoutListener mGlobalLayoutListener;
+
+    private ViewTreeObserver mViewTreeObserver;
+
+    PreDrawListenerRegistration(final View hostView, final ViewTreeObserver.OnPreDrawListener listener) {
+        this(hostView, listener, null);
+    }
+
+    PreDrawListenerRegistration(final View hostView, final ViewTreeObserver.OnPreDrawListener listener,
+                                final ViewTreeObserver.OnGlobalLayoutListener globalLayoutListener) {
+        mHostView = hostView;
+        mListener = listener;
+        mGlobalLayoutListener = globalLayoutListener;
+    }
+
+    void register() {
+        if (mViewTreeObserver == null && mHostView.getWindowToken() != null) {
+            mViewTreeObserver = mHostView.getViewTreeObserver();
+            mViewTreeObserver.addOnPreDrawListener(mListener);
+            if (mGlobalLayoutListener != null) {
+                mViewTreeObserver.addOnGlobalLayoutListener(mGlobalLayoutListener);
+            }
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    void unregister() {
+        if (mViewTreeObserver != null) {
+            if (mViewTreeObserver.isAlive()) {
+                mViewTreeObserver.removeOnPreDrawListener(mListener);
+                if (mGlobalLayoutListener != null) {
+                    /* removeOnGlobalLayoutListener() does not exist before Jelly Bean. */
+                    mViewTreeObserver.removeGlobalOnLayoutListener(mGlobalLayoutListener);
+                }
+            }
+            mViewTreeObserver = null;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.text.Layout;
+import android.view.View;
+
+/**
+ * Draws a text {@link Layout} that was computed in advance, instead of
+ * laying out the text itself like a TextView would.
+ */
+class PreparedTextView extends View {
+
+    private Layout mTextLayout;
+
+    PreparedTextView(final Context context) {
+        super(context);
+    }
+
+    void setTextLayout(final Layout textLayout) {
+        mTextLayout = textLayout;
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        final int width = mTextLayout == null ? 0 : mTextLayout.getWidth();
+        final int height = mTextLayout == null ? 0 : mTextLayout.getHeight();
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(final Canvas canvas) {
+        if (mTextLayout != null) {
+            mTextLayout.draw(canvas);
+        }
+    }
+}
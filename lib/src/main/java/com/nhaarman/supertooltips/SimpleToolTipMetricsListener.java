@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+/**
+ * A {@link ToolTipMetricsListener} that ignores all callbacks. Extend it to
+ * only override the callbacks you are interested in.
+ */
+public class SimpleToolTipMetricsListener implements ToolTipMetricsListener {
+
+    @Override
+    public void onToolTipBound(final ToolTipView toolTipView, final long startNanos, final long endNanos) {
+    }
+
+    @Override
+    public void onToolTipMeasured(final ToolTipView toolTipView, final long startNanos, final long endNanos) {
+    }
+
+    @Override
+    public void onToolTipLaidOut(final ToolTipView toolTipView, final long startNanos, final long endNanos) {
+    }
+
+    @Override
+    public void onToolTipFirstPreDraw(final ToolTipView toolTipView, final long nanos) {
+    }
+
+    @Override
+    public void onToolTipAppearAnimationStarted(final ToolTipView toolTipView, final long nanos) {
+    }
+
+    @Override
+    public void onToolTipAppearAnimationEnded(final ToolTipView toolTipView, final long nanos) {
+    }
+
+    @Override
+    public void onToolTipDismissed(final ToolTipView toolTipView, final long nanos, final boolean whileAppearing) {
+    }
+
+    @Override
+    public void onToolTipDetached(final ToolTipView toolTipView, final long nanos) {
+    }
+
+    @Override
+    public void onToolTipAnimationFramesDropped(final long nanos, final int droppedFrameCount) {
+    }
+}
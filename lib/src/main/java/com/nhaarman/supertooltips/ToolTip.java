@@ -16,6 +16,7 @@
 package com.nhaarman.supertooltips;
 
 import android.graphics.Typeface;
+import android.text.Layout;
 import android.view.View;
 
 public class ToolTip {
@@ -26,14 +27,35 @@ public class ToolTip {
         NONE
     }
 
+    public enum RenderMode {
+        /**
+         * The ToolTip is built from the inflated tooltip layout, using nine-patch frames and pointer images.
+         */
+        INFLATED,
+
+        /**
+         * The ToolTip frame, pointer and shadow are drawn by the ToolTipView itself, which only hosts the content as a child.
+         */
+        DRAWN
+    }
+
     private CharSequence mText;
     private int mTextResId;
     private int mColor;
     private int mTextColor;
     private View mContentView;
+    private int mContentViewResId;
+    private View mContentPlaceholder;
     private AnimationType mAnimationType;
     private boolean mShouldShowShadow;
     private Typeface mTypeface;
+    private RenderMode mRenderMode;
+    private boolean mShouldTrackAnchor;
+    private boolean mShouldCacheBitmap;
+    private long mDisplayDuration;
+
+    private int mTextGeneration;
+    private volatile Layout mPreparedTextLayout;
 
     /**
      * Creates a new ToolTip without any values.
@@ -45,6 +67,7 @@ public class ToolTip {
         mColor = 0;
         mContentView = null;
         mAnimationType = AnimationType.FROM_MASTER_VIEW;
+        mRenderMode = RenderMode.INFLATED;
     }
 
     /**
@@ -55,6 +78,7 @@ public class ToolTip {
     public ToolTip withText(final CharSequence text) {
         mText = text;
         mTextResId = 0;
+        invalidatePreparedText();
         return this;
     }
 
@@ -66,6 +90,7 @@ public class ToolTip {
     public ToolTip withText(final int resId) {
         mTextResId = resId;
         mText = null;
+        invalidatePreparedText();
         return this;
     }
 
@@ -98,6 +123,7 @@ public class ToolTip {
      */
     public ToolTip withTextColor(final int color) {
         mTextColor = color;
+        invalidatePreparedText();
         return this;
     }
 
@@ -111,6 +137,33 @@ public class ToolTip {
         return this;
     }
 
+    /**
+     * Set a layout resource for the content of the ToolTip. The layout is
+     * inflated in the background when the ToolTip is shown, and replaces
+     * the placeholder set using {@link #withContentPlaceholder(View)} when
+     * it is ready. Without a placeholder, any text that has been set is
+     * shown in the meantime. Without either, the ToolTip does not appear
+     * until the layout is ready. Has no effect when a content View is set
+     * using withContentView(View).
+     *
+     * @return this ToolTip to build upon.
+     */
+    public ToolTip withContentView(final int layoutResId) {
+        mContentViewResId = layoutResId;
+        return this;
+    }
+
+    /**
+     * Set a lightweight View to show while the layout set using
+     * {@link #withContentView(int)} is inflated.
+     *
+     * @return this ToolTip to build upon.
+     */
+    public ToolTip withContentPlaceholder(final View placeholder) {
+        mContentPlaceholder = placeholder;
+        return this;
+    }
+
     /**
      * Set the animation type for the ToolTip. Defaults to {@link AnimationType#FROM_MASTER_VIEW}.
      *
@@ -121,6 +174,16 @@ public class ToolTip {
         return this;
     }
 
+    /**
+     * Set the way the ToolTip is rendered. Defaults to {@link RenderMode#INFLATED}.
+     *
+     * @return this ToolTip to build upon.
+     */
+    public ToolTip withRenderMode(final RenderMode renderMode) {
+        mRenderMode = renderMode;
+        return this;
+    }
+
     /**
      * Set to show a shadow below the ToolTip.
      *
@@ -142,10 +205,94 @@ public class ToolTip {
     }
 
     /**
-     * @param typeface the typeface to set
+     * Set to let the ToolTip follow its anchor View when it moves, for
+     * example when it is inside a scrolling container. Moved ToolTips are
+     * repositioned once per frame using translation only.
+     *
+     * @return this ToolTip to build upon.
+     */
+    public ToolTip withAnchorTracking() {
+        mShouldTrackAnchor = true;
+        return this;
+    }
+
+    /**
+     * Set to NOT let the ToolTip follow its anchor View when it moves.
+     *
+     * @return this ToolTip to build upon.
      */
-    public void withTypeface(final Typeface typeface) {
+    public ToolTip withoutAnchorTracking() {
+        mShouldTrackAnchor = false;
+        return this;
+    }
+
+    /**
+     * Set to render the text of the ToolTip into a Bitmap once, and draw that
+     * Bitmap when a ToolTip with the same text, typeface and text color is
+     * shown again, skipping text measurement and layout. Only has effect for
+     * plain text ToolTips with {@link RenderMode#DRAWN}.
+     *
+     * @return this ToolTip to build upon.
+     */
+    public ToolTip withBitmapCaching() {
+        mShouldCacheBitmap = true;
+        return this;
+    }
+
+    /**
+     * Set to NOT render the text of the ToolTip into a cached Bitmap.
+     *
+     * @return this ToolTip to build upon.
+     */
+    public ToolTip withoutBitmapCaching() {
+        mShouldCacheBitmap = false;
+        return this;
+    }
+
+    /**
+     * Set to dismiss the ToolTip by itself after it has been shown for given
+     * duration, using its disappear animation. The time in which the
+     * ToolTipRelativeLayout is hidden, for example while its Activity is
+     * stopped, does not count. Defaults to 0, which shows the ToolTip until
+     * it is dismissed. When the duration has passed, the ToolTipView
+     * notifies its {@link ToolTipView.OnToolTipViewDismissedListener}.
+     *
+     * @param durationMillis
+     *            the duration in milliseconds, or 0 to show the ToolTip until it is dismissed.
+     *
+     * @return this ToolTip to build upon.
+     */
+    public ToolTip withDisplayDuration(final long durationMillis) {
+        mDisplayDuration = durationMillis;
+        return this;
+    }
+
+    /**
+     * Set a custom typeface for the text of the ToolTip. Has no effect when a content View is set.
+     *
+     * @return this ToolTip to build upon.
+     */
+    public ToolTip withTypeface(final Typeface typeface) {
         mTypeface = typeface;
+        invalidatePreparedText();
+        return this;
+    }
+
+    /**
+     * Returns an immutable {@link ToolTipSpec} with the current values of
+     * this ToolTip. Changing this ToolTip afterwards does not affect the
+     * ToolTipSpec.
+     *
+     * @throws IllegalStateException
+     *             if a content View or placeholder View has been set, since
+     *             a ToolTipSpec cannot hold Views. Use
+     *             {@link #withContentView(int)} instead.
+     */
+    public ToolTipSpec toSpec() {
+        if (mContentView != null || mContentPlaceholder != null) {
+            throw new IllegalStateException("A ToolTipSpec cannot hold Views, use withContentView(int) instead.");
+        }
+        return new ToolTipSpec(this);
     }
 
     public CharSequence getText() {
@@ -168,18 +315,67 @@ public class ToolTip {
         return mContentView;
     }
 
+    public int getContentViewResId() {
+        return mContentViewResId;
+    }
+
+    public View getContentPlaceholder() {
+        return mContentPlaceholder;
+    }
+
     public AnimationType getAnimationType() {
         return mAnimationType;
     }
 
+    public RenderMode getRenderMode() {
+        return mRenderMode;
+    }
+
     public boolean shouldShowShadow() {
         return mShouldShowShadow;
     }
 
+    public boolean shouldTrackAnchor() {
+        return mShouldTrackAnchor;
+    }
+
+    public boolean shouldCacheBitmap() {
+        return mShouldCacheBitmap;
+    }
+
+    /**
+     * @return the duration after which the ToolTip dismisses itself in milliseconds, or 0 if it does not.
+     */
+    public long getDisplayDuration() {
+        return mDisplayDuration;
+    }
+
     /**
      * @return the typeface
      */
     public Typeface getTypeface() {
         return mTypeface;
     }
+
+    /**
+     * @return the text layout computed by {@link ToolTipRelativeLayout#prepareToolTip(ToolTip, int)}, or null if it is not ready (yet).
+     */
+    Layout getPreparedTextLayout() {
+        return mPreparedTextLayout;
+    }
+
+    int getTextGeneration() {
+        return mTextGeneration;
+    }
+
+    synchronized void setPreparedTextLayout(final Layout textLayout, final int textGeneration) {
+        if (textGeneration == mTextGeneration) {
+            mPreparedTextLayout = textLayout;
+        }
+    }
+
+    private synchronized void invalidatePreparedText() {
+        mTextGeneration++;
+        mPreparedTextLayout = null;
+    }
 }
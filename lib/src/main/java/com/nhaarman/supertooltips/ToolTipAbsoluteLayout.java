@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+
+/**
+ * A {@link ToolTipRelativeLayout} that skips the measuring and layout rules
+ * of RelativeLayout, which ToolTips do not use. Each child is measured once,
+ * and laid out at the top left corner of this layout, offset by its
+ * margins. ToolTipViews are positioned by translation only, so this is
+ * all they need; layout passes stay cheap as the number of ToolTips grows.
+ * <p/>
+ * RelativeLayout rules on children are ignored. Put the content of the
+ * screen in a single child that fills this layout, or next to this layout.
+ */
+public class ToolTipAbsoluteLayout extends ToolTipRelativeLayout {
+
+    public ToolTipAbsoluteLayout(final Context context) {
+        super(context);
+    }
+
+    public ToolTipAbsoluteLayout(final Context context, final AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public ToolTipAbsoluteLayout(final Context context, final AttributeSet attrs, final int defStyle) {
+        super(context, attrs, defStyle);
+    }
+
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        int maxWidth = 0;
+        int maxHeight = 0;
+
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+
+            measureChildWithMargins(child, widthMeasureSpec, 0, heightMeasureSpec, 0);
+            final MarginLayoutParams params = (MarginLayoutParams) child.getLayoutParams();
+            maxWidth = Math.max(maxWidth, child.getMeasuredWidth() + params.leftMargin + params.rightMargin);
+            maxHeight = Math.max(maxHeight, child.getMeasuredHeight() + params.topMargin + params.bottomMargin);
+        }
+
+        maxWidth = Math.max(maxWidth + getPaddingLeft() + getPaddingRight(), getSuggestedMinimumWidth());
+        maxHeight = Math.max(maxHeight + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight());
+        setMeasuredDimension(resolveSize(maxWidth, widthMeasureSpec), resolveSize(maxHeight, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onLayout(final boolean changed, final int l, final int t, final int r, final int b) {
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() == GONE) {
+                continue;
+            }
+
+            final MarginLayoutParams params = (MarginLayoutParams) child.getLayoutParams();
+            final int left = getPaddingLeft() + params.leftMargin;
+            final int top = getPaddingTop() + params.topMargin;
+            child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+        }
+    }
+}
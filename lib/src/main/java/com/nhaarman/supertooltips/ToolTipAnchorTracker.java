@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps ToolTipViews that track their anchor in place. A single
+ * {@link ViewTreeObserver.OnPreDrawListener} is registered for all tracked
+ * ToolTipViews, and only while there are any. Scrolling always results in a
+ * new frame, so no separate scroll listener is needed.
+ */
+class ToolTipAnchorTracker implements ViewTreeObserver.OnPreDrawListener {
+
+    private final PreDrawListenerRegistration mPreDrawListenerRegistration;
+    private final List<ToolTipView> mToolTipViews = new ArrayList<>();
+
+    private int mLastFrameUpdateCount;
+
+    ToolTipAnchorTracker(final View hostView) {
+        mPreDrawListenerRegistration = new PreDrawListenerRegistration(hostView, this);
+    }
+
+    void track(final ToolTipView toolTipView) {
+        if (!mToolTipViews.contains(toolTipView)) {
+            mToolTipViews.add(toolTipView);
+        }
+        mPreDrawListenerRegistration.register();
+    }
+
+    void untrack(final ToolTipView toolTipView) {
+        mToolTipViews.remove(toolTipView);
+        if (mToolTipViews.isEmpty()) {
+            mPreDrawListenerRegistration.unregister();
+        }
+    }
+
+    void onAttachedToWindow() {
+        if (!mToolTipViews.isEmpty()) {
+            mPreDrawListenerRegistration.register();
+        }
+    }
+
+    void onDetachedFromWindow() {
+        mPreDrawListenerRegistration.unregister();
+    }
+
+    int getLastFrameUpdateCount() {
+        return mLastFrameUpdateCount;
+    }
+
+    @Override
+    public boolean onPreDraw() {
+        int updateCount = 0;
+        final int toolTipViewCount = mToolTipViews.size();
+        for (int i = 0; i < toolTipViewCount; i++) {
+            if (mToolTipViews.get(i).followAnchor()) {
+                updateCount++;
+            }
+        }
+        mLastFrameUpdateCount = updateCount;
+        return true;
+    }
+}
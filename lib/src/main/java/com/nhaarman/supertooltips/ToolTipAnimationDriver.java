@@ -0,0 +1,257 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.Display;
+import android.view.View;
+import android.view.WindowManager;
+import android.view.animation.AccelerateDecelerateInterpolator;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Steps the appear and disappear animations of all ToolTipViews of a
+ * {@link ToolTipRelativeLayout} from a single frame callback. Start and end
+ * values are computed when an animation starts; animation entries are
+ * recycled, so stepping a frame does not allocate. Values are applied
+ * through {@link ToolTipViewProperty}, and on Honeycomb and up the
+ * ToolTipView is drawn into a hardware layer while it animates.
+ */
+class ToolTipAnimationDriver implements Runnable {
+
+    /**
+     * The duration of the appear and disappear animations, in milliseconds.
+     */
+    static final long DURATION = 300;
+
+    /**
+     * The delay between frames on devices without postOnAnimation(), in milliseconds.
+     */
+    private static final long FRAME_DELAY = 10;
+
+    private static final double NANOS_PER_SECOND = 1000000000d;
+
+    private static final Interpolator INTERPOLATOR = new AccelerateDecelerateInterpolator();
+
+    private final View mHostView;
+
+    private final List<Animation> mAnimations = new ArrayList<>();
+    private final List<Animation> mRecycledAnimations = new ArrayList<>();
+    private final List<Animation> mFinishedAnimations = new ArrayList<>();
+
+    private boolean mFrameScheduled;
+
+    private ToolTipMetricsListener mMetricsListener;
+    private long mFrameIntervalNanos;
+    private long mLastFrameNanos;
+
+    ToolTipAnimationDriver(final View hostView) {
+        mHostView = hostView;
+    }
+
+    /**
+     * Sets the listener to report dropped animation frames to, or null.
+     */
+    void setMetricsListener(final ToolTipMetricsListener metricsListener) {
+        mMetricsListener = metricsListener;
+        mLastFrameNanos = 0;
+        if (metricsListener != null && mFrameIntervalNanos == 0) {
+            final Display display = ((WindowManager) mHostView.getContext().getSystemService(Context.WINDOW_SERVICE)).getDefaultDisplay();
+            mFrameIntervalNanos = (long) (NANOS_PER_SECOND / display.getRefreshRate());
+        }
+    }
+
+    /**
+     * Animates given ToolTipView in, from given position to its final position, while scaling and fading it in.
+     */
+    void animateIn(final ToolTipView toolTipView, final boolean animateX, final float fromX, final float toX, final float fromY, final float toY) {
+        start(toolTipView, true, animateX, fromX, toX, fromY, toY);
+    }
+
+    /**
+     * Animates given ToolTipView out, from its current position to given position, while scaling and fading it out.
+     */
+    void animateOut(final ToolTipView toolTipView, final boolean animateX, final float fromX, final float toX, final float fromY, final float toY) {
+        start(toolTipView, false, animateX, fromX, toX, fromY, toY);
+    }
+
+    /**
+     * Stops the animation of given ToolTipView, if any, without notifying it.
+     */
+    void cancel(final ToolTipView toolTipView) {
+        for (int i = mAnimations.size() - 1; i >= 0; i--) {
+            final Animation animation = mAnimations.get(i);
+            if (animation.mToolTipView == toolTipView) {
+                mAnimations.remove(i);
+                animation.disableLayer();
+                recycle(animation);
+            }
+        }
+    }
+
+    private void start(final ToolTipView toolTipView, final boolean appearing, final boolean animateX,
+                       final float fromX, final float toX, final float fromY, final float toY) {
+        cancel(toolTipView);
+        if (mAnimations.isEmpty()) {
+            /* The driver was idle: the time since the last frame says nothing about dropped frames. */
+            mLastFrameNanos = 0;
+        }
+
+        final Animation animation = mRecycledAnimations.isEmpty() ? new Animation() : mRecycledAnimations.remove(mRecycledAnimations.size() - 1);
+        animation.mToolTipView = toolTipView;
+        animation.mAppearing = appearing;
+        animation.mAnimateX = animateX;
+        animation.mFromX = fromX;
+        animation.mToX = toX;
+        animation.mFromY = fromY;
+        animation.mToY = toY;
+        animation.mStartTime = AnimationUtils.currentAnimationTimeMillis();
+        mAnimations.add(animation);
+
+        animation.enableLayer();
+        animation.apply(0);
+        scheduleFrame();
+    }
+
+    @Override
+    public void run() {
+        mFrameScheduled = false;
+
+        if (mMetricsListener != null) {
+            reportDroppedFrames();
+        }
+
+        final long now = AnimationUtils.currentAnimationTimeMillis();
+        for (int i = mAnimations.size() - 1; i >= 0; i--) {
+            final Animation animation = mAnimations.get(i);
+            final float fraction = Math.min(1f, (now - animation.mStartTime) / (float) DURATION);
+            animation.apply(INTERPOLATOR.getInterpolation(fraction));
+
+            if (fraction >= 1f) {
+                mAnimations.remove(i);
+                mFinishedAnimations.add(animation);
+            }
+        }
+
+        /* Notify afterwards, since ToolTipViews may start or cancel animations in response. */
+        final int finishedCount = mFinishedAnimations.size();
+        for (int i = 0; i < finishedCount; i++) {
+            final Animation animation = mFinishedAnimations.get(i);
+            final ToolTipView toolTipView = animation.mToolTipView;
+            final boolean appearing = animation.mAppearing;
+            animation.disableLayer();
+            recycle(animation);
+
+            if (appearing) {
+                toolTipView.onAppearAnimationEnd();
+            } else {
+                toolTipView.onDisappearAnimationEnd();
+            }
+        }
+        mFinishedAnimations.clear();
+
+        if (!mAnimations.isEmpty()) {
+            scheduleFrame();
+        } else {
+            mLastFrameNanos = 0;
+        }
+    }
+
+    /**
+     * Reports the frames that were missed since the previous animation frame, rounded to the nearest frame.
+     */
+    private void reportDroppedFrames() {
+        final long frameNanos = System.nanoTime();
+        if (mLastFrameNanos != 0) {
+            final int droppedFrameCount = (int) ((frameNanos - mLastFrameNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos) - 1;
+            if (droppedFrameCount > 0) {
+                mMetricsListener.onToolTipAnimationFramesDropped(frameNanos, droppedFrameCount);
+            }
+        }
+        mLastFrameNanos = frameNanos;
+    }
+
+    @TargetApi(16)
+    private void scheduleFrame() {
+        if (mFrameScheduled) {
+            return;
+        }
+        mFrameScheduled = true;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            mHostView.postOnAnimation(this);
+        } else {
+            mHostView.postDelayed(this, FRAME_DELAY);
+        }
+    }
+
+    private void recycle(final Animation animation) {
+        animation.mToolTipView = null;
+        mRecycledAnimations.add(animation);
+    }
+
+    private static class Animation {
+
+        private ToolTipView mToolTipView;
+        private boolean mAppearing;
+        private boolean mAnimateX;
+        private float mFromX;
+        private float mToX;
+        private float mFromY;
+        private float mToY;
+        private long mStartTime;
+        private boolean mLayerEnabled;
+
+        void apply(final float fraction) {
+            if (mAnimateX) {
+                ToolTipViewProperty.TRANSLATION_X.set(mToolTipView, mFromX + (mToX - mFromX) * fraction);
+            }
+            ToolTipViewProperty.TRANSLATION_Y.set(mToolTipView, mFromY + (mToY - mFromY) * fraction);
+
+            final float visibleFraction = mAppearing ? fraction : 1 - fraction;
+            ToolTipViewProperty.SCALE_X.set(mToolTipView, visibleFraction);
+            ToolTipViewProperty.SCALE_Y.set(mToolTipView, visibleFraction);
+            ToolTipViewProperty.ALPHA.set(mToolTipView, visibleFraction);
+        }
+
+        /**
+         * Like ViewPropertyAnimator.withLayer(): scaling and fading a
+         * hardware layer does not require redrawing the ToolTipView.
+         */
+        @TargetApi(11)
+        void enableLayer() {
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && mToolTipView.getLayerType() == View.LAYER_TYPE_NONE) {
+                mToolTipView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+                mLayerEnabled = true;
+            }
+        }
+
+        @TargetApi(11)
+        void disableLayer() {
+            if (mLayerEnabled) {
+                mToolTipView.setLayerType(View.LAYER_TYPE_NONE, null);
+                mLayerEnabled = false;
+            }
+        }
+    }
+}
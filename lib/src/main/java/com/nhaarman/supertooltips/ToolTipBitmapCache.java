@@ -0,0 +1,221 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.annotation.TargetApi;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Typeface;
+import android.os.Build;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A least recently used cache of pre-rendered ToolTip texts, bounded by the
+ * number of bytes the Bitmaps take. Used by ToolTipViews that show a
+ * {@link ToolTip} with {@link ToolTip#withBitmapCaching()}, so that
+ * showing the same text again skips text measurement and layout. On Ice
+ * Cream Sandwich and up, the cache is trimmed when the system is low on
+ * memory.
+ */
+final class ToolTipBitmapCache {
+
+    /**
+     * The default budget, as a fraction of the maximum heap size.
+     */
+    private static final int DEFAULT_MEMORY_FRACTION = 64;
+
+    private static final ToolTipBitmapCache INSTANCE = new ToolTipBitmapCache();
+
+    private final LinkedHashMap<Key, Bitmap> mBitmaps = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long mMaxBytes = Runtime.getRuntime().maxMemory() / DEFAULT_MEMORY_FRACTION;
+    private long mBytes;
+    private int mHitCount;
+    private int mMissCount;
+    private boolean mRegistered;
+
+    private ToolTipBitmapCache() {
+    }
+
+    static ToolTipBitmapCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Makes sure the cache is trimmed when the system is low on memory.
+     */
+    @TargetApi(14)
+    void register(final Context context) {
+        if (!mRegistered && Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            context.getApplicationContext().registerComponentCallbacks(new TrimMemoryCallbacks());
+            mRegistered = true;
+        }
+    }
+
+    Bitmap get(final Key key) {
+        final Bitmap bitmap = mBitmaps.get(key);
+        if (bitmap == null) {
+            mMissCount++;
+        } else {
+            mHitCount++;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Stores given Bitmap for a copy of given key, evicting the least recently used Bitmaps when over budget.
+     */
+    void put(final Key key, final Bitmap bitmap) {
+        final long byteCount = getByteCount(bitmap);
+        if (byteCount > mMaxBytes) {
+            return;
+        }
+
+        final Bitmap previous = mBitmaps.put(key.copy(), bitmap);
+        if (previous != null) {
+            mBytes -= getByteCount(previous);
+        }
+        mBytes += byteCount;
+        trimToSize(mMaxBytes);
+    }
+
+    void setMaxBytes(final long maxBytes) {
+        mMaxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    long getBytes() {
+        return mBytes;
+    }
+
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    int getMissCount() {
+        return mMissCount;
+    }
+
+    void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * Evicts the least recently used Bitmaps until the cache takes at most given number of bytes. Evicted Bitmaps are
+     * not recycled, since visible ToolTipViews may still draw them.
+     */
+    private void trimToSize(final long maxBytes) {
+        final Iterator<Bitmap> iterator = mBitmaps.values().iterator();
+        while (mBytes > maxBytes && iterator.hasNext()) {
+            mBytes -= getByteCount(iterator.next());
+            iterator.remove();
+        }
+    }
+
+    private static long getByteCount(final Bitmap bitmap) {
+        return (long) bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    /**
+     * Trims the cache when the system is low on memory. ComponentCallbacks2
+     * does not exist before Ice Cream Sandwich, so this class may only be
+     * loaded there.
+     */
+    @TargetApi(14)
+    private static class TrimMemoryCallbacks implements ComponentCallbacks2 {
+
+        @Override
+        public void onTrimMemory(final int level) {
+            if (level >= TRIM_MEMORY_MODERATE) {
+                INSTANCE.clear();
+            } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+                INSTANCE.trimToSize(INSTANCE.mMaxBytes / 2);
+            }
+        }
+
+        @Override
+        public void onLowMemory() {
+            INSTANCE.clear();
+        }
+
+        @Override
+        public void onConfigurationChanged(final Configuration newConfig) {
+        }
+    }
+
+    /**
+     * Everything that determines what a pre-rendered ToolTip text looks like.
+     * ToolTipViews reuse a single Key for lookups; the cache stores copies.
+     */
+    static class Key {
+
+        private String mText;
+        private Typeface mTypeface;
+        private int mTextColor;
+        private float mTextSize;
+        private int mMaxWidth;
+
+        void set(final String text, final Typeface typeface, final int textColor, final float textSize) {
+            mText = text;
+            mTypeface = typeface;
+            mTextColor = textColor;
+            mTextSize = textSize;
+        }
+
+        void setMaxWidth(final int maxWidth) {
+            mMaxWidth = maxWidth;
+        }
+
+        Key copy() {
+            final Key key = new Key();
+            key.set(mText, mTypeface, mTextColor, mTextSize);
+            key.mMaxWidth = mMaxWidth;
+            return key;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            final Key key = (Key) o;
+            return mTextColor == key.mTextColor
+                    && Float.compare(mTextSize, key.mTextSize) == 0
+                    && mMaxWidth == key.mMaxWidth
+                    && mText.equals(key.mText)
+                    && (mTypeface == null ? key.mTypeface == null : mTypeface.equals(key.mTypeface));
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mText.hashCode();
+            result = 31 * result + (mTypeface == null ? 0 : mTypeface.hashCode());
+            result = 31 * result + mTextColor;
+            result = 31 * result + Float.floatToIntBits(mTextSize);
+            result = 31 * result + mMaxWidth;
+            return result;
+        }
+    }
+}
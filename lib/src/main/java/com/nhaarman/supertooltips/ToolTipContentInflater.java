@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Inflates ToolTip content layouts on a background thread, and delivers
+ * them on the UI thread. Layouts with View classes that cannot be created
+ * off the UI thread are inflated on the UI thread instead.
+ */
+final class ToolTipContentInflater {
+
+    private static Handler sMainHandler;
+
+    private ToolTipContentInflater() {
+    }
+
+    static void inflate(final Context context, final int layoutResId, final Executor executor, final OnContentViewInflatedListener listener) {
+        if (sMainHandler == null) {
+            sMainHandler = new Handler(Looper.getMainLooper());
+        }
+
+        /* LayoutInflater is not thread safe: the background thread gets its own instance. */
+        final LayoutInflater backgroundInflater = LayoutInflater.from(context).cloneInContext(context);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                View view;
+                try {
+                    view = backgroundInflater.inflate(layoutResId, null);
+                } catch (final RuntimeException ignored) {
+                    /* For example an InflateException caused by a View that creates a Handler in its constructor. */
+                    view = null;
+                }
+
+                final View inflatedView = view;
+                sMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        listener.onContentViewInflated(inflatedView == null ? LayoutInflater.from(context).inflate(layoutResId, null) : inflatedView);
+                    }
+                });
+            }
+        });
+    }
+
+    interface OnContentViewInflatedListener {
+
+        void onContentViewInflated(View view);
+    }
+}
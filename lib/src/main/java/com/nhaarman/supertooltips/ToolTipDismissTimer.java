@@ -0,0 +1,252 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Dismisses ToolTipViews when their display duration has passed. All
+ * timeouts are kept in a hashed timer wheel: a ring of slots, each holding
+ * a linked list of the timeouts that expire in it, so that adding and
+ * cancelling a timeout takes constant time. A single Handler message is
+ * pending for the nearest slot that holds timeouts, and none while there
+ * are no timeouts or the timer is paused. The wheel only advances while it
+ * is not paused, so paused timeouts keep their remaining time. Timeout
+ * entries are recycled.
+ */
+class ToolTipDismissTimer implements Handler.Callback {
+
+    private static final int MSG_TICK = 1;
+
+    /**
+     * The duration of a slot, in milliseconds. Timeouts expire at most this much late.
+     */
+    private static final long TICK_MILLIS = 100;
+
+    /**
+     * The number of slots. Timeouts further ahead than one revolution are kept in the slot they expire in, and skipped until their revolution.
+     */
+    private static final int WHEEL_SIZE = 64;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper(), this);
+
+    private final Timeout[] mSlots = new Timeout[WHEEL_SIZE];
+    private final List<Timeout> mRecycledTimeouts = new ArrayList<>();
+    private final List<ToolTipView> mExpiredToolTipViews = new ArrayList<>();
+
+    private int mTimeoutCount;
+
+    /**
+     * The number of ticks the wheel has advanced.
+     */
+    private long mTick;
+
+    /**
+     * The uptime at which the current tick started, in milliseconds.
+     */
+    private long mTickUptimeMillis;
+
+    /**
+     * The time that had passed in the current tick when the timer was paused, in milliseconds.
+     */
+    private long mPausedTickMillis;
+
+    private boolean mPaused;
+    private boolean mTickScheduled;
+    private long mScheduledTickUptimeMillis;
+
+    /**
+     * Dismisses given ToolTipView after given duration, replacing its previous timeout if any.
+     */
+    void schedule(final ToolTipView toolTipView, final long durationMillis) {
+        cancel(toolTipView);
+
+        if (mTimeoutCount == 0 && !mPaused) {
+            /* The wheel is idle, start a new tick now so the timeout is not rounded down. */
+            mTickUptimeMillis = SystemClock.uptimeMillis();
+        }
+        final long tickMillis = mPaused ? mPausedTickMillis : SystemClock.uptimeMillis() - mTickUptimeMillis;
+        final long deadlineTick = mTick + Math.max(1, (tickMillis + durationMillis + TICK_MILLIS - 1) / TICK_MILLIS);
+
+        final Timeout timeout = mRecycledTimeouts.isEmpty() ? new Timeout() : mRecycledTimeouts.remove(mRecycledTimeouts.size() - 1);
+        timeout.mToolTipView = toolTipView;
+        timeout.mDeadlineTick = deadlineTick;
+        timeout.mSlot = (int) (deadlineTick % WHEEL_SIZE);
+        timeout.mPrevious = null;
+        timeout.mNext = mSlots[timeout.mSlot];
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrevious = timeout;
+        }
+        mSlots[timeout.mSlot] = timeout;
+        mTimeoutCount++;
+        toolTipView.setDismissTimeout(timeout);
+
+        if (!mPaused) {
+            scheduleTick(mTickUptimeMillis + (deadlineTick - mTick) * TICK_MILLIS);
+        }
+    }
+
+    /**
+     * Cancels the timeout of given ToolTipView, if any.
+     */
+    void cancel(final ToolTipView toolTipView) {
+        final Timeout timeout = toolTipView.getDismissTimeout();
+        if (timeout == null) {
+            return;
+        }
+
+        unlink(timeout);
+        if (mTimeoutCount == 0) {
+            unscheduleTick();
+        }
+    }
+
+    /**
+     * Pauses or resumes all timeouts. Paused timeouts keep their remaining time.
+     */
+    void setPaused(final boolean paused) {
+        if (paused == mPaused) {
+            return;
+        }
+        mPaused = paused;
+
+        final long now = SystemClock.uptimeMillis();
+        if (paused) {
+            mPausedTickMillis = mTimeoutCount == 0 ? 0 : Math.max(0, now - mTickUptimeMillis);
+            unscheduleTick();
+        } else {
+            mTickUptimeMillis = now - mPausedTickMillis;
+            scheduleNextTick();
+        }
+    }
+
+    @Override
+    public boolean handleMessage(final Message msg) {
+        if (msg.what != MSG_TICK) {
+            return false;
+        }
+
+        mTickScheduled = false;
+        advance(SystemClock.uptimeMillis());
+        scheduleNextTick();
+        return true;
+    }
+
+    /**
+     * Advances the wheel to given uptime, and dismisses the ToolTipViews whose timeout has expired.
+     */
+    private void advance(final long now) {
+        final long elapsedTicks = (now - mTickUptimeMillis) / TICK_MILLIS;
+        if (elapsedTicks <= 0) {
+            return;
+        }
+
+        mTick += elapsedTicks;
+        mTickUptimeMillis += elapsedTicks * TICK_MILLIS;
+
+        /* Every slot passed since the last tick has to be checked, but each slot only once. */
+        final long checkedSlotCount = Math.min(elapsedTicks, WHEEL_SIZE);
+        for (long tick = mTick - checkedSlotCount + 1; tick <= mTick; tick++) {
+            Timeout timeout = mSlots[(int) (tick % WHEEL_SIZE)];
+            while (timeout != null) {
+                final Timeout next = timeout.mNext;
+                if (timeout.mDeadlineTick <= mTick) {
+                    mExpiredToolTipViews.add(timeout.mToolTipView);
+                    unlink(timeout);
+                }
+                timeout = next;
+            }
+        }
+
+        /* Dismissing a ToolTipView may cancel other timeouts, so this is done after walking the wheel. */
+        final int expiredCount = mExpiredToolTipViews.size();
+        for (int i = 0; i < expiredCount; i++) {
+            mExpiredToolTipViews.get(i).dismiss();
+        }
+        mExpiredToolTipViews.clear();
+    }
+
+    private void unlink(final Timeout timeout) {
+        if (timeout.mPrevious == null) {
+            mSlots[timeout.mSlot] = timeout.mNext;
+        } else {
+            timeout.mPrevious.mNext = timeout.mNext;
+        }
+        if (timeout.mNext != null) {
+            timeout.mNext.mPrevious = timeout.mPrevious;
+        }
+        mTimeoutCount--;
+
+        timeout.mToolTipView.setDismissTimeout(null);
+        timeout.mToolTipView = null;
+        timeout.mPrevious = null;
+        timeout.mNext = null;
+        mRecycledTimeouts.add(timeout);
+    }
+
+    /**
+     * Schedules a tick for the nearest slot that holds timeouts, if any.
+     */
+    private void scheduleNextTick() {
+        if (mPaused || mTimeoutCount == 0) {
+            return;
+        }
+
+        for (int ticks = 1; ticks <= WHEEL_SIZE; ticks++) {
+            if (mSlots[(int) ((mTick + ticks) % WHEEL_SIZE)] != null) {
+                scheduleTick(mTickUptimeMillis + ticks * TICK_MILLIS);
+                return;
+            }
+        }
+    }
+
+    private void scheduleTick(final long uptimeMillis) {
+        if (mTickScheduled && mScheduledTickUptimeMillis <= uptimeMillis) {
+            return;
+        }
+
+        mHandler.removeMessages(MSG_TICK);
+        mHandler.sendEmptyMessageAtTime(MSG_TICK, uptimeMillis);
+        mTickScheduled = true;
+        mScheduledTickUptimeMillis = uptimeMillis;
+    }
+
+    private void unscheduleTick() {
+        if (mTickScheduled) {
+            mHandler.removeMessages(MSG_TICK);
+            mTickScheduled = false;
+        }
+    }
+
+    /**
+     * A pending timeout. Kept by its ToolTipView, so that it can be cancelled without searching for it.
+     */
+    static class Timeout {
+
+        private ToolTipView mToolTipView;
+        private long mDeadlineTick;
+        private int mSlot;
+        private Timeout mPrevious;
+        private Timeout mNext;
+    }
+}
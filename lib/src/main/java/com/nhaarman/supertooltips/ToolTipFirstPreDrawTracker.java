@@ -0,0 +1,84 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reports the first pre-draw pass of newly bound ToolTipViews to a
+ * {@link ToolTipMetricsListener}. The {@link ViewTreeObserver.OnPreDrawListener}
+ * is only registered while there are ToolTipViews waiting for their first frame.
+ */
+class ToolTipFirstPreDrawTracker implements ViewTreeObserver.OnPreDrawListener {
+
+    private final PreDrawListenerRegistration mPreDrawListenerRegistration;
+    private final List<ToolTipView> mToolTipViews = new ArrayList<>();
+
+    private ToolTipMetricsListener mMetricsListener;
+
+    ToolTipFirstPreDrawTracker(final View hostView) {
+        mPreDrawListenerRegistration = new PreDrawListenerRegistration(hostView, this);
+    }
+
+    void setMetricsListener(final ToolTipMetricsListener metricsListener) {
+        mMetricsListener = metricsListener;
+        if (metricsListener == null) {
+            mToolTipViews.clear();
+            mPreDrawListenerRegistration.unregister();
+        }
+    }
+
+    void track(final ToolTipView toolTipView) {
+        if (!mToolTipViews.contains(toolTipView)) {
+            mToolTipViews.add(toolTipView);
+        }
+        mPreDrawListenerRegistration.register();
+    }
+
+    void untrack(final ToolTipView toolTipView) {
+        mToolTipViews.remove(toolTipView);
+        if (mToolTipViews.isEmpty()) {
+            mPreDrawListenerRegistration.unregister();
+        }
+    }
+
+    void onAttachedToWindow() {
+        if (!mToolTipViews.isEmpty()) {
+            mPreDrawListenerRegistration.register();
+        }
+    }
+
+    void onDetachedFromWindow() {
+        mPreDrawListenerRegistration.unregister();
+    }
+
+    @Override
+    public boolean onPreDraw() {
+        final long nanos = System.nanoTime();
+        final int toolTipViewCount = mToolTipViews.size();
+        for (int i = 0; i < toolTipViewCount; i++) {
+            mMetricsListener.onToolTipFirstPreDraw(mToolTipViews.get(i), nanos);
+        }
+        mToolTipViews.clear();
+        mPreDrawListenerRegistration.unregister();
+        return true;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+/**
+ * Receives timing information about the ToolTips of a
+ * {@link ToolTipRelativeLayout}, for example to feed it into performance
+ * dashboards. All timestamps are taken from {@link System#nanoTime()}.
+ * Callbacks are invoked on the UI thread and should return quickly.
+ * Extend {@link SimpleToolTipMetricsListener} to only receive some of them.
+ *
+ * @see ToolTipRelativeLayout#setMetricsListener(ToolTipMetricsListener)
+ */
+public interface ToolTipMetricsListener {
+
+    /**
+     * Called when a ToolTipView has been created or recycled, and bound to its ToolTip.
+     */
+    void onToolTipBound(ToolTipView toolTipView, long startNanos, long endNanos);
+
+    /**
+     * Called after each measure pass of a ToolTipView.
+     */
+    void onToolTipMeasured(ToolTipView toolTipView, long startNanos, long endNanos);
+
+    /**
+     * Called after each layout pass of a ToolTipView, which includes positioning it during the first pass.
+     */
+    void onToolTipLaidOut(ToolTipView toolTipView, long startNanos, long endNanos);
+
+    /**
+     * Called on the first pre-draw pass after a ToolTipView has been bound.
+     */
+    void onToolTipFirstPreDraw(ToolTipView toolTipView, long nanos);
+
+    /**
+     * Called when a ToolTipView starts animating in.
+     */
+    void onToolTipAppearAnimationStarted(ToolTipView toolTipView, long nanos);
+
+    /**
+     * Called when a ToolTipView has finished animating in.
+     */
+    void onToolTipAppearAnimationEnded(ToolTipView toolTipView, long nanos);
+
+    /**
+     * Called when a ToolTipView is removed.
+     *
+     * @param whileAppearing
+     *            whether the ToolTipView was still animating in.
+     */
+    void onToolTipDismissed(ToolTipView toolTipView, long nanos, boolean whileAppearing);
+
+    /**
+     * Called when a ToolTipView is detached from the window.
+     */
+    void onToolTipDetached(ToolTipView toolTipView, long nanos);
+
+    /**
+     * Called when frames were dropped while ToolTipViews were animating.
+     *
+     * @param droppedFrameCount
+     *            the number of frames that were missed since the previous animation frame.
+     */
+    void onToolTipAnimationFramesDropped(long nanos, int droppedFrameCount);
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.app.Activity;
+import android.content.Context;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
+
+/**
+ * A {@link ToolTipAbsoluteLayout} that lays out its ToolTipViews by itself.
+ * Showing, removing and resizing a ToolTipView, and changing its layout
+ * params, never requests a layout pass of the View hierarchy it is in: the
+ * ToolTipViews that need it are measured against the size of this layout
+ * and laid out right before the next frame is drawn, and positioned by
+ * translation as usual. Use {@link #attachTo(Activity)} to add it as an
+ * overlay on top of the content of an Activity.
+ */
+public class ToolTipOverlayLayout extends ToolTipAbsoluteLayout implements ViewTreeObserver.OnPreDrawListener {
+
+    private boolean mIgnoreLayoutRequests;
+
+    private ViewTreeObserver mViewTreeObserver;
+
+    public ToolTipOverlayLayout(final Context context) {
+        super(context);
+    }
+
+    public ToolTipOverlayLayout(final Context context, final AttributeSet attrs) {
+        super(context, attrs);
+    }
+
+    public ToolTipOverlayLayout(final Context context, final AttributeSet attrs, final int defStyle) {
+        super(context, attrs, defStyle);
+    }
+
+    /**
+     * Returns the ToolTipOverlayLayout on top of the content of given
+     * Activity, adding one if there is none yet. Call this after
+     * setContentView().
+     */
+    public static ToolTipOverlayLayout attachTo(final Activity activity) {
+        final ViewGroup contentView = (ViewGroup) activity.findViewById(android.R.id.content);
+        final View topView = contentView.getChildAt(contentView.getChildCount() - 1);
+        if (topView instanceof ToolTipOverlayLayout) {
+            return (ToolTipOverlayLayout) topView;
+        }
+
+        final ToolTipOverlayLayout overlayLayout = new ToolTipOverlayLayout(activity);
+        contentView.addView(overlayLayout, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        return overlayLayout;
+    }
+
+    @Override
+    public void requestLayout() {
+        if (!mIgnoreLayoutRequests) {
+            super.requestLayout();
+        }
+    }
+
+    @Override
+    public void addView(final View child, final int index, final ViewGroup.LayoutParams params) {
+        if (child instanceof ToolTipView) {
+            addViewInLayout(child, index, params, true);
+            requestToolTipViewsLayout();
+        } else {
+            super.addView(child, index, params);
+        }
+    }
+
+    @Override
+    public void removeView(final View view) {
+        if (view instanceof ToolTipView) {
+            removeViewInLayout(view);
+            invalidate();
+        } else {
+            super.removeView(view);
+        }
+    }
+
+    @Override
+    void requestToolTipViewsLayout() {
+        if (mViewTreeObserver == null && getWindowToken() != null) {
+            mViewTreeObserver = getViewTreeObserver();
+            mViewTreeObserver.addOnPreDrawListener(this);
+        }
+        invalidate();
+    }
+
+    /**
+     * Called by a ToolTipView that needs a layout pass.
+     */
+    void requestToolTipViewLayout(final ToolTipView toolTipView) {
+        mIgnoreLayoutRequests = true;
+        toolTipView.requestLayoutFromParent();
+        mIgnoreLayoutRequests = false;
+
+        requestToolTipViewsLayout();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        requestToolTipViewsLayout();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        removePreDrawListener();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean onPreDraw() {
+        removePreDrawListener();
+        layoutToolTipViews();
+        return true;
+    }
+
+    /**
+     * Measures and lays out the ToolTipViews that requested it, within the bounds of this layout.
+     */
+    private void layoutToolTipViews() {
+        final int widthMeasureSpec = MeasureSpec.makeMeasureSpec(getWidth() - getPaddingLeft() - getPaddingRight(), MeasureSpec.AT_MOST);
+        final int heightMeasureSpec = MeasureSpec.makeMeasureSpec(getHeight() - getPaddingTop() - getPaddingBottom(), MeasureSpec.AT_MOST);
+
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (!(child instanceof ToolTipView) || !child.isLayoutRequested() || child.getVisibility() == GONE) {
+                continue;
+            }
+
+            child.measure(widthMeasureSpec, heightMeasureSpec);
+
+            /* ToolTipViews are positioned by translation only. */
+            final int left = getPaddingLeft();
+            final int top = getPaddingTop();
+            child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+        }
+    }
+
+    private void removePreDrawListener() {
+        if (mViewTreeObserver != null) {
+            if (mViewTreeObserver.isAlive()) {
+                mViewTreeObserver.removeOnPreDrawListener(this);
+            }
+            mViewTreeObserver = null;
+        }
+    }
+}
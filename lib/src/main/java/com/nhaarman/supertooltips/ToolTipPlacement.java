@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+/**
+ * The result of placing a ToolTip using the {@link ToolTipPlacementEngine}.
+ * All coordinates are relative to the container the ToolTip is shown in.
+ * Instances are meant to be reused between placements.
+ */
+public class ToolTipPlacement {
+
+    int mX;
+    int mY;
+    boolean mShowBelow;
+    int mPointerCenterX;
+    int mPointerX;
+    int mAnchorX;
+    int mAnchorY;
+    int mAnchorCenteredX;
+    int mAnchorCenteredY;
+
+    /**
+     * @return the x position of the ToolTip.
+     */
+    public int getX() {
+        return mX;
+    }
+
+    /**
+     * @return the y position of the ToolTip.
+     */
+    public int getY() {
+        return mY;
+    }
+
+    /**
+     * @return true if the ToolTip is shown below its anchor, false if it is shown above.
+     */
+    public boolean isShowBelow() {
+        return mShowBelow;
+    }
+
+    /**
+     * @return the x position the pointer should point at.
+     */
+    public int getPointerCenterX() {
+        return mPointerCenterX;
+    }
+
+    /**
+     * @return the x position of the left side of the pointer, relative to the ToolTip itself.
+     */
+    public int getPointerX() {
+        return mPointerX;
+    }
+
+    /**
+     * @return the x position of the anchor.
+     */
+    public int getAnchorX() {
+        return mAnchorX;
+    }
+
+    /**
+     * @return the y position of the anchor.
+     */
+    public int getAnchorY() {
+        return mAnchorY;
+    }
+
+    /**
+     * @return the x position of the ToolTip when centered on its anchor, used to animate from the anchor.
+     */
+    public int getAnchorCenteredX() {
+        return mAnchorCenteredX;
+    }
+
+    /**
+     * @return the y position of the ToolTip when centered on its anchor, used to animate from the anchor.
+     */
+    public int getAnchorCenteredY() {
+        return mAnchorCenteredY;
+    }
+
+    /**
+     * Moves this placement, for when its anchor has moved by given distance.
+     */
+    void offset(final int dx, final int dy) {
+        mX += dx;
+        mY += dy;
+        mPointerCenterX += dx;
+        mAnchorX += dx;
+        mAnchorY += dy;
+        mAnchorCenteredX += dx;
+        mAnchorCenteredY += dy;
+    }
+}
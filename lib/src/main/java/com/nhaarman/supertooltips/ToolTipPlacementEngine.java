@@ -0,0 +1,178 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+/**
+ * Calculates where a ToolTip should be shown relative to its anchor. This
+ * class only works with plain ints and does not depend on any Android
+ * classes, so it can be used and measured on a plain JVM.
+ */
+public final class ToolTipPlacementEngine {
+
+    /**
+     * The horizontal directions to shift the ToolTip in: not at all, as far left as possible, and as far right as possible.
+     */
+    private static final int[] HORIZONTAL_SHIFTS = {0, -1, 1};
+
+    /**
+     * The cost of each pixel of overlap with another ToolTip, relative to a pixel of horizontal shift.
+     */
+    private static final int OVERLAP_COST = 4;
+
+    private ToolTipPlacementEngine() {
+    }
+
+    /**
+     * Places a ToolTip above its anchor, or below it if there is no room
+     * above. The ToolTip is horizontally centered on the anchor, but kept
+     * within the container and the visible display frame.
+     *
+     * @param anchorScreenX
+     *            the x position of the anchor on screen.
+     * @param anchorScreenY
+     *            the y position of the anchor on screen.
+     * @param anchorWidth
+     *            the width of the anchor.
+     * @param anchorHeight
+     *            the height of the anchor.
+     * @param containerScreenX
+     *            the x position of the container the ToolTip is shown in on screen.
+     * @param containerScreenY
+     *            the y position of the container the ToolTip is shown in on screen.
+     * @param visibleFrameRight
+     *            the right side of the visible display frame on screen.
+     * @param toolTipWidth
+     *            the width of the ToolTip.
+     * @param toolTipHeight
+     *            the height of the ToolTip.
+     * @param pointerWidth
+     *            the width of the pointer of the ToolTip.
+     * @param placement
+     *            the ToolTipPlacement to store the result in.
+     *
+     * @return given placement.
+     */
+    public static ToolTipPlacement place(final int anchorScreenX, final int anchorScreenY, final int anchorWidth, final int anchorHeight,
+                                         final int containerScreenX, final int containerScreenY, final int visibleFrameRight,
+                                         final int toolTipWidth, final int toolTipHeight, final int pointerWidth,
+                                         final ToolTipPlacement placement) {
+        final int anchorX = anchorScreenX - containerScreenX;
+        final int anchorY = anchorScreenY - containerScreenY;
+        final int anchorCenterX = anchorX + anchorWidth / 2;
+
+        final int aboveY = anchorY - toolTipHeight;
+        final int belowY = Math.max(0, anchorY + anchorHeight);
+
+        final int maxRight = visibleFrameRight - containerScreenX;
+        int x = Math.max(0, anchorCenterX - toolTipWidth / 2);
+        if (x + toolTipWidth > maxRight) {
+            x = maxRight - toolTipWidth;
+        }
+
+        placement.mShowBelow = aboveY < 0;
+        placement.mX = x;
+        placement.mY = placement.mShowBelow ? belowY : aboveY;
+        placement.mPointerCenterX = anchorCenterX;
+        placement.mPointerX = anchorCenterX - pointerWidth / 2 - x;
+        placement.mAnchorX = anchorX;
+        placement.mAnchorY = anchorY;
+        placement.mAnchorCenteredX = anchorCenterX - toolTipWidth / 2;
+        placement.mAnchorCenteredY = anchorY + anchorHeight / 2 - toolTipHeight / 2;
+        return placement;
+    }
+
+    /**
+     * Places a ToolTip like {@link #place(int, int, int, int, int, int, int, int, int, int, ToolTipPlacement)},
+     * but avoids overlapping the ToolTips in given index. Positions above and
+     * below the anchor are considered, centered on the anchor and shifted
+     * horizontally as far as the pointer allows: the pointer stays on the
+     * ToolTip, at least half its width away from the edges. The position with the lowest cost is chosen, where
+     * overlapping another ToolTip costs more than showing the ToolTip below
+     * its anchor or shifting it away from the center of its anchor.
+     *
+     * @param occupied
+     *            the index holding the ToolTips that are already visible.
+     * @param key
+     *            the key of the ToolTip that is placed, which is ignored in given index.
+     *
+     * @return given placement.
+     */
+    public static <K> ToolTipPlacement place(final int anchorScreenX, final int anchorScreenY, final int anchorWidth, final int anchorHeight,
+                                             final int containerScreenX, final int containerScreenY, final int visibleFrameRight,
+                                             final int toolTipWidth, final int toolTipHeight, final int pointerWidth,
+                                             final ToolTipSpatialIndex<K> occupied, final K key,
+                                             final ToolTipPlacement placement) {
+        place(anchorScreenX, anchorScreenY, anchorWidth, anchorHeight, containerScreenX, containerScreenY, visibleFrameRight,
+                toolTipWidth, toolTipHeight, pointerWidth, placement);
+
+        if (occupied == null || occupied.isEmpty()) {
+            return placement;
+        }
+
+        final int preferredX = placement.mX;
+        final int pointerCenterX = placement.mPointerCenterX;
+        final int aboveY = placement.mAnchorY - toolTipHeight;
+        final int belowY = Math.max(0, placement.mAnchorY + anchorHeight);
+        final int maxX = visibleFrameRight - containerScreenX - toolTipWidth;
+
+        /* The range of x positions that keeps the pointer on the ToolTip, with a margin for the rounded corners. */
+        final int pointerMargin = pointerWidth / 2;
+        final int minPointerX = pointerCenterX + pointerWidth / 2 + pointerMargin - toolTipWidth;
+        final int maxPointerX = pointerCenterX - pointerWidth / 2 - pointerMargin;
+
+        long bestCost = Long.MAX_VALUE;
+        int bestX = placement.mX;
+        boolean bestShowBelow = placement.mShowBelow;
+
+        for (int side = 0; side < 2 && bestCost > 0; side++) {
+            final boolean showBelow = side == 1;
+            if (!showBelow && aboveY < 0) {
+                continue;
+            }
+            final int y = showBelow ? belowY : aboveY;
+
+            for (int i = 0; i < HORIZONTAL_SHIFTS.length && bestCost > 0; i++) {
+                final int shift = HORIZONTAL_SHIFTS[i];
+                final int x;
+                if (shift == 0) {
+                    x = preferredX;
+                } else {
+                    x = Math.min(maxX, Math.max(0, shift < 0 ? minPointerX : maxPointerX));
+                    if (x == preferredX || x < minPointerX || x > maxPointerX) {
+                        /* Kept in place by the container, or the pointer would leave the ToolTip. */
+                        continue;
+                    }
+                }
+
+                final long cost = occupied.getOverlapArea(x, y, x + toolTipWidth, y + toolTipHeight, key) * OVERLAP_COST
+                        + Math.abs(x - preferredX)
+                        + (showBelow && aboveY >= 0 ? toolTipHeight : 0);
+                if (cost < bestCost) {
+                    bestCost = cost;
+                    bestX = x;
+                    bestShowBelow = showBelow;
+                }
+            }
+        }
+
+        placement.mShowBelow = bestShowBelow;
+        placement.mX = bestX;
+        placement.mY = bestShowBelow ? belowY : aboveY;
+        placement.mPointerX = pointerCenterX - pointerWidth / 2 - bestX;
+        return placement;
+    }
+}
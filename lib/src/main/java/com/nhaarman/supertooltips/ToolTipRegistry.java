@@ -0,0 +1,331 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.Rect;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.widget.AdapterView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds ToolTips that are registered for an anchor key instead of an anchor
+ * View, and only creates ToolTipViews for the anchors that are currently on
+ * screen. Anchors are checked on each pre-draw pass, which is only listened
+ * to while there are registrations: Views by id in the whole window, and
+ * AdapterView rows by stable item id among the visible rows. Views are only
+ * looked up by id again after a layout pass. When an anchor leaves the
+ * screen, or its row is reused for another item, its ToolTipView is removed
+ * and can be recycled.
+ */
+class ToolTipRegistry implements ViewTreeObserver.OnPreDrawListener, ViewTreeObserver.OnGlobalLayoutListener {
+
+    private final ToolTipRelativeLayout mToolTipRelativeLayout;
+
+    private final SparseArray<ToolTipSpec> mViewIdSpecs = new SparseArray<>();
+    private final SparseArray<View> mViewIdAnchors = new SparseArray<>();
+    private final SparseArray<Materialization> mViewIdMaterializations = new SparseArray<>();
+    private final List<AdapterViewSpecs> mAdapterViewSpecs = new ArrayList<>();
+
+    private final List<Materialization> mMaterializations = new ArrayList<>();
+    private final List<Materialization> mRecycledMaterializations = new ArrayList<>();
+
+    private final Rect mVisibleRect = new Rect();
+
+    private final PreDrawListenerRegistration mPreDrawListenerRegistration;
+
+    /**
+     * Whether {@link #mViewIdAnchors} holds the current Views for all registered ids.
+     */
+    private boolean mViewIdAnchorsResolved;
+
+    ToolTipRegistry(final ToolTipRelativeLayout toolTipRelativeLayout) {
+        mToolTipRelativeLayout = toolTipRelativeLayout;
+        mPreDrawListenerRegistration = new PreDrawListenerRegistration(toolTipRelativeLayout, this, this);
+    }
+
+    void register(final int viewId, final ToolTipSpec toolTipSpec) {
+        mViewIdSpecs.put(viewId, toolTipSpec);
+        mViewIdAnchorsResolved = false;
+        mPreDrawListenerRegistration.register();
+    }
+
+    void register(final AdapterView<?> adapterView, final long itemId, final ToolTipSpec toolTipSpec) {
+        AdapterViewSpecs adapterViewSpecs = getAdapterViewSpecs(adapterView);
+        if (adapterViewSpecs == null) {
+            adapterViewSpecs = new AdapterViewSpecs(adapterView);
+            mAdapterViewSpecs.add(adapterViewSpecs);
+        }
+        adapterViewSpecs.mSpecs.put(itemId, toolTipSpec);
+        mPreDrawListenerRegistration.register();
+    }
+
+    void unregister(final int viewId) {
+        mViewIdSpecs.remove(viewId);
+        mViewIdAnchors.remove(viewId);
+        dematerialize(mViewIdMaterializations.get(viewId));
+        unregisterIfEmpty();
+    }
+
+    void unregister(final AdapterView<?> adapterView, final long itemId) {
+        final AdapterViewSpecs adapterViewSpecs = getAdapterViewSpecs(adapterView);
+        if (adapterViewSpecs != null) {
+            adapterViewSpecs.mSpecs.remove(itemId);
+            dematerialize(adapterViewSpecs.mMaterializations.get(itemId));
+            if (adapterViewSpecs.mSpecs.size() == 0) {
+                mAdapterViewSpecs.remove(adapterViewSpecs);
+            }
+        }
+        unregisterIfEmpty();
+    }
+
+    void unregisterAll() {
+        for (int i = mMaterializations.size() - 1; i >= 0; i--) {
+            final Materialization materialization = mMaterializations.remove(i);
+            materialization.mToolTipView.remove();
+            recycle(materialization);
+        }
+        mViewIdSpecs.clear();
+        mViewIdAnchors.clear();
+        mAdapterViewSpecs.clear();
+        mPreDrawListenerRegistration.unregister();
+    }
+
+    /**
+     * @return whether given ToolTipView was created for a registered ToolTip.
+     */
+    boolean isMaterialized(final ToolTipView toolTipView) {
+        for (int i = 0; i < mMaterializations.size(); i++) {
+            if (mMaterializations.get(i).mToolTipView == toolTipView) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getMaterializedCount() {
+        return mMaterializations.size();
+    }
+
+    void onAttachedToWindow() {
+        if (hasRegistrations()) {
+            mPreDrawListenerRegistration.register();
+        }
+    }
+
+    void onDetachedFromWindow() {
+        mPreDrawListenerRegistration.unregister();
+        mViewIdAnchors.clear();
+        mViewIdAnchorsResolved = false;
+    }
+
+    @Override
+    public void onGlobalLayout() {
+        /* Views may have been added, removed or given another id. */
+        mViewIdAnchorsResolved = false;
+    }
+
+    @Override
+    public boolean onPreDraw() {
+        releaseOffscreenToolTips();
+        materializeViewIdToolTips();
+        materializeAdapterViewToolTips();
+        return true;
+    }
+
+    /**
+     * Removes the ToolTipViews whose anchor is no longer on screen or no longer shows the registered item.
+     */
+    private void releaseOffscreenToolTips() {
+        for (int i = mMaterializations.size() - 1; i >= 0; i--) {
+            final Materialization materialization = mMaterializations.get(i);
+            final ToolTipView toolTipView = materialization.mToolTipView;
+            if (toolTipView.isRemoving() || toolTipView.getAnchorView() != materialization.mAnchorView) {
+                /* Dismissed by the user, and possibly recycled already: do not show it again. */
+                final AdapterViewSpecs adapterViewSpecs = materialization.mAdapterViewSpecs;
+                final long key = materialization.mKey;
+                mMaterializations.remove(i);
+                recycle(materialization);
+                if (adapterViewSpecs == null) {
+                    unregister((int) key);
+                } else {
+                    unregister(adapterViewSpecs.mAdapterView, key);
+                }
+            } else if (!isOnScreen(materialization.mAnchorView) || !isAnchorFor(materialization)) {
+                mMaterializations.remove(i);
+                toolTipView.remove();
+                recycle(materialization);
+            }
+        }
+    }
+
+    private void materializeViewIdToolTips() {
+        if (mViewIdSpecs.size() == 0) {
+            return;
+        }
+
+        if (!mViewIdAnchorsResolved) {
+            resolveViewIdAnchors();
+        }
+
+        for (int i = 0; i < mViewIdSpecs.size(); i++) {
+            final int viewId = mViewIdSpecs.keyAt(i);
+            if (mViewIdMaterializations.get(viewId) != null) {
+                continue;
+            }
+
+            final View anchorView = mViewIdAnchors.get(viewId);
+            if (anchorView != null && isOnScreen(anchorView)) {
+                materialize(null, viewId, anchorView, mViewIdSpecs.valueAt(i));
+            }
+        }
+    }
+
+    private void resolveViewIdAnchors() {
+        mViewIdAnchorsResolved = true;
+        mViewIdAnchors.clear();
+
+        final View rootView = mToolTipRelativeLayout.getRootView();
+        for (int i = 0; i < mViewIdSpecs.size(); i++) {
+            final int viewId = mViewIdSpecs.keyAt(i);
+            final View anchorView = rootView.findViewById(viewId);
+            if (anchorView != null) {
+                mViewIdAnchors.put(viewId, anchorView);
+            }
+        }
+    }
+
+    private void materializeAdapterViewToolTips() {
+        for (int i = 0; i < mAdapterViewSpecs.size(); i++) {
+            final AdapterViewSpecs adapterViewSpecs = mAdapterViewSpecs.get(i);
+            final AdapterView<?> adapterView = adapterViewSpecs.mAdapterView;
+            final int firstVisiblePosition = adapterView.getFirstVisiblePosition();
+            final int childCount = adapterView.getChildCount();
+            for (int j = 0; j < childCount; j++) {
+                final long itemId = adapterView.getItemIdAtPosition(firstVisiblePosition + j);
+                final ToolTipSpec toolTipSpec = adapterViewSpecs.mSpecs.get(itemId);
+                if (toolTipSpec == null || adapterViewSpecs.mMaterializations.get(itemId) != null) {
+                    continue;
+                }
+
+                final View anchorView = adapterView.getChildAt(j);
+                if (isOnScreen(anchorView)) {
+                    materialize(adapterViewSpecs, itemId, anchorView, toolTipSpec);
+                }
+            }
+        }
+    }
+
+    private void materialize(final AdapterViewSpecs adapterViewSpecs, final long key, final View anchorView, final ToolTipSpec toolTipSpec) {
+        /* The anchor moves while its list scrolls. */
+        final ToolTip toolTip = toolTipSpec.toToolTip().withAnchorTracking();
+
+        final Materialization materialization = mRecycledMaterializations.isEmpty() ? new Materialization() : mRecycledMaterializations.remove(mRecycledMaterializations.size() - 1);
+        materialization.mAdapterViewSpecs = adapterViewSpecs;
+        materialization.mKey = key;
+        materialization.mAnchorView = anchorView;
+        materialization.mToolTipView = mToolTipRelativeLayout.showToolTipForView(toolTip, anchorView);
+        mMaterializations.add(materialization);
+        if (adapterViewSpecs == null) {
+            mViewIdMaterializations.put((int) key, materialization);
+        } else {
+            adapterViewSpecs.mMaterializations.put(key, materialization);
+        }
+    }
+
+    private void dematerialize(final Materialization materialization) {
+        if (materialization != null) {
+            mMaterializations.remove(materialization);
+            materialization.mToolTipView.remove();
+            recycle(materialization);
+        }
+    }
+
+    private boolean isAnchorFor(final Materialization materialization) {
+        if (materialization.mAdapterViewSpecs == null) {
+            return materialization.mAnchorView.getId() == materialization.mKey;
+        }
+
+        final AdapterView<?> adapterView = materialization.mAdapterViewSpecs.mAdapterView;
+        final int position = adapterView.getPositionForView(materialization.mAnchorView);
+        return position != AdapterView.INVALID_POSITION && adapterView.getItemIdAtPosition(position) == materialization.mKey;
+    }
+
+    private boolean isOnScreen(final View view) {
+        return view.getWindowToken() != null && view.isShown() && view.getGlobalVisibleRect(mVisibleRect);
+    }
+
+    private AdapterViewSpecs getAdapterViewSpecs(final AdapterView<?> adapterView) {
+        for (int i = 0; i < mAdapterViewSpecs.size(); i++) {
+            if (mAdapterViewSpecs.get(i).mAdapterView == adapterView) {
+                return mAdapterViewSpecs.get(i);
+            }
+        }
+        return null;
+    }
+
+    private boolean hasRegistrations() {
+        return mViewIdSpecs.size() > 0 || !mAdapterViewSpecs.isEmpty();
+    }
+
+    /**
+     * Forgets given Materialization under its key, and keeps it for reuse.
+     */
+    private void recycle(final Materialization materialization) {
+        if (materialization.mAdapterViewSpecs == null) {
+            mViewIdMaterializations.remove((int) materialization.mKey);
+        } else {
+            materialization.mAdapterViewSpecs.mMaterializations.remove(materialization.mKey);
+        }
+
+        materialization.mAdapterViewSpecs = null;
+        materialization.mAnchorView = null;
+        materialization.mToolTipView = null;
+        mRecycledMaterializations.add(materialization);
+    }
+
+    private void unregisterIfEmpty() {
+        if (!hasRegistrations()) {
+            mPreDrawListenerRegistration.unregister();
+        }
+    }
+
+    /**
+     * The ToolTips registered for the rows of an AdapterView, and the ones that are on screen, by item id.
+     */
+    private static class AdapterViewSpecs {
+
+        private final AdapterView<?> mAdapterView;
+        private final LongKeyedSparseArray<ToolTipSpec> mSpecs = new LongKeyedSparseArray<>();
+        private final LongKeyedSparseArray<Materialization> mMaterializations = new LongKeyedSparseArray<>();
+
+        AdapterViewSpecs(final AdapterView<?> adapterView) {
+            mAdapterView = adapterView;
+        }
+    }
+
+    private static class Materialization {
+
+        private AdapterViewSpecs mAdapterViewSpecs;
+        private long mKey;
+        private View mAnchorView;
+        private ToolTipView mToolTipView;
+    }
+}
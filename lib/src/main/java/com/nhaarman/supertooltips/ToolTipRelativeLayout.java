@@ -19,16 +19,27 @@ import android.annotation.TargetApi;
 import android.app.ActionBar;
 import android.app.Activity;
 import android.content.Context;
-import android.content.res.Resources;
+import android.graphics.Typeface;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.Layout;
+import android.text.TextPaint;
 import android.util.AttributeSet;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AdapterView;
 import android.widget.RelativeLayout;
+import android.widget.TextView;
 
 import com.nhaarman.supertooltips.exception.NoOverflowMenuRuntimeException;
 import com.nhaarman.supertooltips.exception.NoTitleViewRuntimeException;
 import com.nhaarman.supertooltips.exception.ViewNotFoundRuntimeException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
 public class ToolTipRelativeLayout extends RelativeLayout {
 
     public static final String ACTION_BAR_TITLE = "action_bar_title";
@@ -38,16 +49,78 @@ public class ToolTipRelativeLayout extends RelativeLayout {
     public static final String ACTION_MENU_VIEW = "ActionMenuView";
     public static final String OVERFLOW_MENU_BUTTON = "OverflowMenuButton";
 
+    /**
+     * The default maximum number of removed {@link ToolTipView}s that are kept for reuse.
+     */
+    public static final int DEFAULT_MAX_RECYCLED_TOOLTIPVIEWS = 5;
+
+    private final ToolTipViewPool mToolTipViewPool = new ToolTipViewPool(DEFAULT_MAX_RECYCLED_TOOLTIPVIEWS);
+
+    /**
+     * Holds the bounds of the visible ToolTipViews, so new ToolTipViews can be placed without overlapping them.
+     */
+    private final ToolTipSpatialIndex<ToolTipView> mToolTipViewBounds = new ToolTipSpatialIndex<>();
+
+    /**
+     * Holds the bounds of the anchor Views of the visible ToolTipViews, so touches on an anchor can be found without checking every ToolTipView.
+     */
+    private final ToolTipSpatialIndex<ToolTipView> mAnchorBounds = new ToolTipSpatialIndex<>();
+
+    private final ToolTipAnchorTracker mAnchorTracker = new ToolTipAnchorTracker(this);
+
+    private final ToolTipAnimationDriver mAnimationDriver = new ToolTipAnimationDriver(this);
+
+    private final ToolTipFirstPreDrawTracker mFirstPreDrawTracker = new ToolTipFirstPreDrawTracker(this);
+
+    private final ToolTipShowScheduler mShowScheduler = new ToolTipShowScheduler(this);
+
+    private final ToolTipRegistry mToolTipRegistry = new ToolTipRegistry(this);
+
+    private final ToolTipDismissTimer mDismissTimer = new ToolTipDismissTimer();
+
+    private ToolTipMetricsListener mMetricsListener;
+    private OnScheduledToolTipShownListener mOnScheduledToolTipShownListener;
+
+    private TextPaint mTextPaintTemplate;
+    private int mDefaultTextColor;
+
+    private boolean mDismissOnOutsideTouch;
+    private boolean mDismissOnAnchorTouch;
+
+    private boolean mSaveToolTipsEnabled;
+
+    private boolean mWindowVisible;
+
+    /**
+     * Before Honeycomb, the ToolTipView the current gesture started on, if any.
+     */
+    private ToolTipView mTranslatedTouchTarget;
+    private boolean mToolTipTimeoutsPaused;
+
+    private final boolean mPreHoneycomb;
+
     public ToolTipRelativeLayout(final Context context) {
-        super(context);
+        this(context, ToolTipView.PRE_HONEYCOMB);
     }
 
     public ToolTipRelativeLayout(final Context context, final AttributeSet attrs) {
         super(context, attrs);
+        mPreHoneycomb = ToolTipView.PRE_HONEYCOMB;
     }
 
     public ToolTipRelativeLayout(final Context context, final AttributeSet attrs, final int defStyle) {
         super(context, attrs, defStyle);
+        mPreHoneycomb = ToolTipView.PRE_HONEYCOMB;
+    }
+
+    /**
+     * @param preHoneycomb
+     *            whether to take the path needed before Honeycomb, see {@link #isPreHoneycomb()}. Lets tests cover
+     *            that path on newer devices.
+     */
+    ToolTipRelativeLayout(final Context context, final boolean preHoneycomb) {
+        super(context);
+        mPreHoneycomb = preHoneycomb;
     }
 
     /**
@@ -62,12 +135,329 @@ public class ToolTipRelativeLayout extends RelativeLayout {
      * @return the ToolTipView that was created.
      */
     public ToolTipView showToolTipForView(final ToolTip toolTip, final View view) {
-        final ToolTipView toolTipView = new ToolTipView(getContext());
+        final long startNanos = mMetricsListener == null ? 0 : System.nanoTime();
+
+        final ToolTipView toolTipView = obtainToolTipView(toolTip.getRenderMode());
         toolTipView.setToolTip(toolTip, view);
+        inflateContentView(toolTipView, toolTip);
+
+        if (mMetricsListener != null) {
+            onToolTipViewBound(toolTipView, startNanos);
+        }
+
         addView(toolTipView);
         return toolTipView;
     }
 
+    /**
+     * Shows a {@link ToolTipView} based on given {@link ToolTipSpec} at the
+     * proper location relative to given {@link View}.
+     *
+     * @param toolTipSpec
+     *            the ToolTipSpec to show.
+     * @param view
+     *            the View to position the ToolTipView relative to.
+     *
+     * @return the ToolTipView that was created.
+     */
+    public ToolTipView showToolTipForView(final ToolTipSpec toolTipSpec, final View view) {
+        return showToolTipForView(toolTipSpec.toToolTip(), view);
+    }
+
+    /**
+     * Shows a {@link ToolTipView} for each given {@link ToolTip} at the proper
+     * location relative to the {@link View} at the same index. All
+     * ToolTipViews are added with a single layout request, so they are
+     * measured, positioned and start animating in the same layout pass.
+     *
+     * @param toolTips
+     *            the ToolTips to show.
+     * @param views
+     *            the Views to position the ToolTipViews relative to.
+     *
+     * @return the ToolTipViews that were created, in the same order as given ToolTips.
+     */
+    public List<ToolTipView> showToolTips(final List<ToolTip> toolTips, final List<View> views) {
+        if (toolTips.size() != views.size()) {
+            throw new IllegalArgumentException("Expected a View for each ToolTip, got " + toolTips.size() + " ToolTips and " + views.size() + " Views.");
+        }
+
+        return addToolTipViews(toolTips, views, false);
+    }
+
+    private List<ToolTipView> addToolTipViews(final List<ToolTip> toolTips, final List<View> views, final boolean skipAppearAnimation) {
+        final int toolTipCount = toolTips.size();
+        final List<ToolTipView> toolTipViews = new ArrayList<>(toolTipCount);
+        for (int i = 0; i < toolTipCount; i++) {
+            final long startNanos = mMetricsListener == null ? 0 : System.nanoTime();
+
+            final ToolTip toolTip = toolTips.get(i);
+            final ToolTipView toolTipView = obtainToolTipView(toolTip.getRenderMode());
+            toolTipView.setToolTip(toolTip, views.get(i));
+            if (skipAppearAnimation) {
+                toolTipView.skipAppearAnimation();
+            }
+            inflateContentView(toolTipView, toolTip);
+
+            if (mMetricsListener != null) {
+                onToolTipViewBound(toolTipView, startNanos);
+            }
+
+            ViewGroup.LayoutParams layoutParams = toolTipView.getLayoutParams();
+            if (!checkLayoutParams(layoutParams)) {
+                layoutParams = generateLayoutParams(layoutParams);
+            }
+            addViewInLayout(toolTipView, -1, layoutParams, true);
+            toolTipViews.add(toolTipView);
+        }
+
+        requestToolTipViewsLayout();
+        return toolTipViews;
+    }
+
+    /**
+     * Requests a layout pass for ToolTipViews that were added in layout.
+     */
+    void requestToolTipViewsLayout() {
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * Queues given {@link ToolTip} to be shown for given {@link View} in an
+     * upcoming frame. See
+     * {@link #scheduleToolTip(ToolTip, View, int, long)}.
+     */
+    public void scheduleToolTip(final ToolTip toolTip, final View view) {
+        scheduleToolTip(toolTip, view, 0, 0);
+    }
+
+    /**
+     * Queues given {@link ToolTip} to be shown for given {@link View} in an
+     * upcoming frame, rather than right away. Queued ToolTips are shown in
+     * order of priority, at most {@link #getMaxToolTipsPerFrame()} per frame,
+     * and not while the main thread is busy drawing frames. Use
+     * {@link #setOnScheduledToolTipShownListener(OnScheduledToolTipShownListener)}
+     * to get hold of the ToolTipViews that are created.
+     *
+     * @param toolTip
+     *            the ToolTip to show.
+     * @param view
+     *            the View to position the ToolTipView relative to.
+     * @param priority
+     *            ToolTips with a higher priority are shown first; ToolTips
+     *            with equal priorities are shown in the order they were
+     *            scheduled.
+     * @param minSpacingMillis
+     *            the minimum time between showing the previous scheduled
+     *            ToolTip and this one, in milliseconds.
+     */
+    public void scheduleToolTip(final ToolTip toolTip, final View view, final int priority, final long minSpacingMillis) {
+        mShowScheduler.schedule(toolTip, view, priority, minSpacingMillis);
+    }
+
+    /**
+     * Removes given {@link ToolTip} from the queue of ToolTips to show.
+     *
+     * @return true if the ToolTip was queued, false if it was not or has already been shown.
+     */
+    public boolean cancelScheduledToolTip(final ToolTip toolTip) {
+        return mShowScheduler.cancel(toolTip);
+    }
+
+    /**
+     * Removes all ToolTips from the queue of ToolTips to show.
+     */
+    public void cancelScheduledToolTips() {
+        mShowScheduler.cancelAll();
+    }
+
+    /**
+     * @return the number of scheduled ToolTips that have not been shown yet.
+     */
+    public int getScheduledToolTipCount() {
+        return mShowScheduler.getPendingCount();
+    }
+
+    /**
+     * Sets the maximum number of scheduled ToolTips that are shown in a single frame. Defaults to 1.
+     */
+    public void setMaxToolTipsPerFrame(final int maxToolTipsPerFrame) {
+        mShowScheduler.setMaxToolTipsPerFrame(maxToolTipsPerFrame);
+    }
+
+    public int getMaxToolTipsPerFrame() {
+        return mShowScheduler.getMaxToolTipsPerFrame();
+    }
+
+    public void setOnScheduledToolTipShownListener(final OnScheduledToolTipShownListener listener) {
+        mOnScheduledToolTipShownListener = listener;
+    }
+
+    /**
+     * Called by the {@link ToolTipShowScheduler} when it is time to show given ToolTip.
+     */
+    void onScheduledToolTipReleased(final ToolTip toolTip, final View view) {
+        final ToolTipView toolTipView = showToolTipForView(toolTip, view);
+        if (mOnScheduledToolTipShownListener != null) {
+            mOnScheduledToolTipShownListener.onScheduledToolTipShown(toolTipView, view);
+        }
+    }
+
+    /**
+     * Registers given {@link ToolTipSpec} for the View with given id, without
+     * creating a ToolTipView yet. A ToolTipView is shown as soon as a View
+     * with this id is attached and visible on screen, and removed again
+     * when it is not. When the user dismisses the ToolTipView, the
+     * registration is removed.
+     *
+     * @param viewId
+     *            the id of the View to position the ToolTipView relative to.
+     * @param toolTipSpec
+     *            the ToolTip to show.
+     */
+    public void registerToolTip(final int viewId, final ToolTipSpec toolTipSpec) {
+        mToolTipRegistry.register(viewId, toolTipSpec);
+    }
+
+    /**
+     * Registers given {@link ToolTipSpec} for the item with given id in given
+     * {@link AdapterView}, without creating a ToolTipView yet. A ToolTipView
+     * is only shown while a row showing this item is visible on screen, so
+     * ToolTips can be registered for any number of items. The Adapter should
+     * have stable ids. When the user dismisses the ToolTipView, the
+     * registration is removed.
+     *
+     * @param adapterView
+     *            the AdapterView, for example a ListView, that shows the item.
+     * @param itemId
+     *            the stable id of the item, as returned by {@link android.widget.Adapter#getItemId(int)}.
+     * @param toolTipSpec
+     *            the ToolTip to show.
+     */
+    public void registerToolTip(final AdapterView<?> adapterView, final long itemId, final ToolTipSpec toolTipSpec) {
+        mToolTipRegistry.register(adapterView, itemId, toolTipSpec);
+    }
+
+    /**
+     * Removes the registration for the View with given id, and its ToolTipView if shown.
+     */
+    public void unregisterToolTip(final int viewId) {
+        mToolTipRegistry.unregister(viewId);
+    }
+
+    /**
+     * Removes the registration for the item with given id in given AdapterView, and its ToolTipView if shown.
+     */
+    public void unregisterToolTip(final AdapterView<?> adapterView, final long itemId) {
+        mToolTipRegistry.unregister(adapterView, itemId);
+    }
+
+    /**
+     * Removes all registrations, and their ToolTipViews if shown.
+     */
+    public void unregisterToolTips() {
+        mToolTipRegistry.unregisterAll();
+    }
+
+    /**
+     * @return the number of registered ToolTips that currently have a ToolTipView.
+     */
+    public int getRegisteredToolTipViewCount() {
+        return mToolTipRegistry.getMaterializedCount();
+    }
+
+    /**
+     * Measures and lays out the text of given {@link ToolTip} on a shared
+     * background thread, so that showing it later does not have to do so on
+     * the UI thread. If the ToolTip is shown before its text is prepared, the
+     * text is measured as usual. Has no effect on ToolTips with a content View.
+     *
+     * @param toolTip
+     *            the ToolTip to prepare.
+     * @param maxWidth
+     *            the maximum width in pixels of the text, before it wraps.
+     */
+    public void prepareToolTip(final ToolTip toolTip, final int maxWidth) {
+        prepareToolTip(toolTip, maxWidth, ToolTipBackgroundExecutor.get());
+    }
+
+    /**
+     * Measures and lays out the text of given {@link ToolTip} on given
+     * {@link Executor}. See {@link #prepareToolTip(ToolTip, int)}.
+     */
+    public void prepareToolTip(final ToolTip toolTip, final int maxWidth, final Executor executor) {
+        if (toolTip.getContentView() != null || toolTip.getContentViewResId() != 0 || toolTip.getPreparedTextLayout() != null) {
+            return;
+        }
+
+        final CharSequence text = resolveText(toolTip.getText(), toolTip.getTextResId());
+        if (text == null) {
+            return;
+        }
+
+        final int textGeneration = toolTip.getTextGeneration();
+        ToolTipTextPreparer.prepare(text, newTextPaint(toolTip.getTypeface(), toolTip.getTextColor()), maxWidth, executor,
+                new ToolTipTextPreparer.Callback() {
+                    @Override
+                    public void onTextPrepared(final Layout textLayout) {
+                        toolTip.setPreparedTextLayout(textLayout, textGeneration);
+                    }
+                }
+        );
+    }
+
+    /**
+     * Measures and lays out the text of given {@link ToolTipSpec} on a
+     * shared background thread. The result is used by all ToolTips shown for
+     * this ToolTipSpec instance. See {@link #prepareToolTip(ToolTip, int)}.
+     */
+    public void prepareToolTip(final ToolTipSpec toolTipSpec, final int maxWidth) {
+        if (toolTipSpec.getContentViewResId() != 0 || toolTipSpec.getPreparedTextLayout() != null) {
+            return;
+        }
+
+        final CharSequence text = resolveText(toolTipSpec.getText(), toolTipSpec.getTextResId());
+        if (text == null) {
+            return;
+        }
+
+        ToolTipTextPreparer.prepare(text, newTextPaint(toolTipSpec.getTypeface(), toolTipSpec.getTextColor()), maxWidth, ToolTipBackgroundExecutor.get(),
+                new ToolTipTextPreparer.Callback() {
+                    @Override
+                    public void onTextPrepared(final Layout textLayout) {
+                        toolTipSpec.setPreparedTextLayout(textLayout);
+                    }
+                }
+        );
+    }
+
+    private CharSequence resolveText(final CharSequence text, final int textResId) {
+        if (text != null) {
+            return text;
+        }
+        return textResId == 0 ? null : getResources().getText(textResId);
+    }
+
+    /**
+     * @return a new paint to prepare text with that looks like the text of a ToolTipView with given typeface and text color.
+     */
+    private TextPaint newTextPaint(final Typeface typeface, final int textColor) {
+        if (mTextPaintTemplate == null) {
+            final TextView textView = new TextView(getContext());
+            mTextPaintTemplate = textView.getPaint();
+            mDefaultTextColor = textView.getCurrentTextColor();
+        }
+
+        final TextPaint paint = new TextPaint();
+        paint.set(mTextPaintTemplate);
+        if (typeface != null) {
+            paint.setTypeface(typeface);
+        }
+        paint.setColor(textColor != 0 ? textColor : mDefaultTextColor);
+        return paint;
+    }
+
     /**
      * **EXPERIMENTAL**</p> Shows a {@link ToolTipView} based on given
      * {@link ToolTip} at the proper location relative to the {@link View} with
@@ -85,7 +475,6 @@ public class ToolTipRelativeLayout extends RelativeLayout {
      * @return the ToolTipView that was created.
      */
     public ToolTipView showToolTipForViewResId(final Activity activity, final ToolTip toolTip, final int resId) {
-        final ToolTipView toolTipView = new ToolTipView(getContext());
         final View decorView = activity.getWindow().getDecorView();
         final View view = decorView.findViewById(resId);
 
@@ -93,9 +482,7 @@ public class ToolTipRelativeLayout extends RelativeLayout {
             throw new ViewNotFoundRuntimeException();
         }
 
-        toolTipView.setToolTip(toolTip, view);
-        addView(toolTipView);
-        return toolTipView;
+        return showToolTipForView(toolTip, view);
     }
 
     /**
@@ -134,11 +521,7 @@ public class ToolTipRelativeLayout extends RelativeLayout {
      */
     @TargetApi(11)
     public ToolTipView showToolTipForActionBarTitle(final Activity activity, final ToolTip toolTip) {
-        final int titleResId = Resources.getSystem().getIdentifier(ACTION_BAR_TITLE, ID, ANDROID);
-        if (titleResId == 0) {
-            throw new NoTitleViewRuntimeException();
-        }
-        return showToolTipForViewResId(activity, toolTip, titleResId);
+        return showToolTipForView(toolTip, ActionBarViewCache.findTitleView(activity));
     }
 
     /**
@@ -160,40 +543,533 @@ public class ToolTipRelativeLayout extends RelativeLayout {
      */
     @TargetApi(11)
     public ToolTipView showToolTipForActionBarOverflowMenu(final Activity activity, final ToolTip toolTip) {
-        return showToolTipForView(toolTip, findActionBarOverflowMenuView(activity));
+        return showToolTipForView(toolTip, ActionBarViewCache.findOverflowMenuView(activity));
     }
 
-    @TargetApi(11)
-    private static View findActionBarOverflowMenuView(final Activity activity) {
-        final ViewGroup decorView = (ViewGroup) activity.getWindow().getDecorView();
+    /**
+     * The ActionBar title and overflow menu button Views are looked up once
+     * and cached for the Activity's window. Call this method after
+     * invalidating the options menu of given Activity, to make sure the next
+     * ToolTip for the ActionBar is shown for the current Views.
+     *
+     * @param activity
+     *            the Activity which holds the ActionBar.
+     */
+    public static void invalidateActionBarViews(final Activity activity) {
+        ActionBarViewCache.invalidate(activity);
+    }
 
-        final int actionBarViewResId = Resources.getSystem().getIdentifier(ACTION_BAR, ID, ANDROID);
-        final ViewGroup actionBarView = (ViewGroup) decorView.findViewById(actionBarViewResId);
+    /**
+     * Sets the maximum number of removed {@link ToolTipView}s that are kept
+     * for reuse. Defaults to {@link #DEFAULT_MAX_RECYCLED_TOOLTIPVIEWS}. Use 0
+     * to disable recycling.
+     */
+    public void setMaxRecycledToolTipViews(final int maxRecycledToolTipViews) {
+        mToolTipViewPool.setMaxSize(maxRecycledToolTipViews);
+    }
+
+    public int getMaxRecycledToolTipViews() {
+        return mToolTipViewPool.getMaxSize();
+    }
 
-        ViewGroup actionMenuView = null;
-        int actionBarViewChildCount = actionBarView.getChildCount();
-        for (int i = 0; i < actionBarViewChildCount; ++i) {
-            if (actionBarView.getChildAt(i).getClass().getSimpleName().equals(ACTION_MENU_VIEW)) {
-                actionMenuView = (ViewGroup) actionBarView.getChildAt(i);
+    /**
+     * @return the number of times a ToolTip was shown using a recycled {@link ToolTipView}.
+     */
+    public int getRecycledToolTipViewHitCount() {
+        return mToolTipViewPool.getHitCount();
+    }
+
+    /**
+     * @return the number of times a new {@link ToolTipView} had to be created to show a ToolTip.
+     */
+    public int getRecycledToolTipViewMissCount() {
+        return mToolTipViewPool.getMissCount();
+    }
+
+    /**
+     * @return the number of ToolTipViews that were moved to follow their anchor in the last frame.
+     */
+    public int getLastFrameAnchorUpdateCount() {
+        return mAnchorTracker.getLastFrameUpdateCount();
+    }
+
+    /**
+     * Returns the ToolTipView that is shown for given View, for example to
+     * set a listener on a ToolTipView that was restored after a configuration
+     * change.
+     *
+     * @return the ToolTipView, or null if there is none.
+     */
+    public ToolTipView getToolTipViewForView(final View view) {
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            final View child = getChildAt(i);
+            if (child instanceof ToolTipView && ((ToolTipView) child).getAnchorView() == view && !((ToolTipView) child).isRemoving()) {
+                return (ToolTipView) child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * If enabled using {@link #setSaveToolTipsEnabled(boolean)}, saves the
+     * shown ToolTips whose anchor View has an id, so that they can be
+     * restored after a configuration change. ToolTips with a content View
+     * cannot be saved, and registered ToolTips are not saved since their
+     * registration is not. Like other View state, this requires this
+     * ToolTipRelativeLayout to have an id.
+     */
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final Parcelable superState = super.onSaveInstanceState();
+        if (!mSaveToolTipsEnabled) {
+            return superState;
+        }
+
+        final ArrayList<ToolTipSpec> toolTipSpecs = new ArrayList<>();
+        final int[] anchorIds = new int[getChildCount()];
+        final int[] visibilities = new int[getChildCount()];
+        final int childCount = getChildCount();
+        for (int i = 0; i < childCount; i++) {
+            if (!(getChildAt(i) instanceof ToolTipView)) {
+                continue;
             }
+
+            final ToolTipView toolTipView = (ToolTipView) getChildAt(i);
+            final ToolTip toolTip = toolTipView.getToolTip();
+            final View anchorView = toolTipView.getAnchorView();
+            if (toolTip == null || toolTipView.isRemoving() || anchorView == null || anchorView.getId() == NO_ID
+                    || toolTip.getContentView() != null || toolTip.getContentPlaceholder() != null
+                    || mToolTipRegistry.isMaterialized(toolTipView)) {
+                continue;
+            }
+
+            anchorIds[toolTipSpecs.size()] = anchorView.getId();
+            visibilities[toolTipSpecs.size()] = toolTipView.getVisibility();
+            toolTipSpecs.add(toolTip.toSpec());
+        }
+
+        if (toolTipSpecs.isEmpty()) {
+            return superState;
+        }
+        return new SavedState(superState, toolTipSpecs, anchorIds, visibilities);
+    }
+
+    /**
+     * Shows the saved ToolTips whose anchor View can be found again, if
+     * saving ToolTips is enabled. They are added in a single layout pass,
+     * and appear in their final position without animating.
+     */
+    @Override
+    protected void onRestoreInstanceState(final Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
         }
 
-        if (actionMenuView == null) {
-            throw new NoOverflowMenuRuntimeException();
+        final SavedState savedState = (SavedState) state;
+        super.onRestoreInstanceState(savedState.getSuperState());
+        if (!mSaveToolTipsEnabled) {
+            return;
         }
 
-        int actionMenuChildCount = actionMenuView.getChildCount();
-        View overflowMenuButton = null;
-        for (int i = 0; i < actionMenuChildCount; ++i) {
-            if (actionMenuView.getChildAt(i).getClass().getSimpleName().equals(OVERFLOW_MENU_BUTTON)) {
-                overflowMenuButton = actionMenuView.getChildAt(i);
+        final View rootView = getRootView();
+        final int toolTipCount = savedState.mToolTipSpecs.size();
+        final List<ToolTip> toolTips = new ArrayList<>(toolTipCount);
+        final List<View> anchorViews = new ArrayList<>(toolTipCount);
+        final List<Integer> visibilities = new ArrayList<>(toolTipCount);
+        for (int i = 0; i < toolTipCount; i++) {
+            final View anchorView = rootView.findViewById(savedState.mAnchorIds[i]);
+            if (anchorView != null) {
+                toolTips.add(savedState.mToolTipSpecs.get(i).toToolTip());
+                anchorViews.add(anchorView);
+                visibilities.add(savedState.mVisibilities[i]);
             }
         }
 
-        if (overflowMenuButton == null) {
-            throw new NoOverflowMenuRuntimeException();
+        final List<ToolTipView> toolTipViews = addToolTipViews(toolTips, anchorViews, true);
+        for (int i = 0; i < toolTipViews.size(); i++) {
+            toolTipViews.get(i).setVisibility(visibilities.get(i));
         }
+    }
 
-        return overflowMenuButton;
+    /**
+     * Sets a listener to report the timing of ToolTips shown in this
+     * ToolTipRelativeLayout to. No timestamps are taken while no listener
+     * is set.
+     *
+     * @param metricsListener
+     *            the listener, or null to stop reporting.
+     */
+    public void setMetricsListener(final ToolTipMetricsListener metricsListener) {
+        mMetricsListener = metricsListener;
+        mFirstPreDrawTracker.setMetricsListener(metricsListener);
+        mAnimationDriver.setMetricsListener(metricsListener);
+    }
+
+    public ToolTipMetricsListener getMetricsListener() {
+        return mMetricsListener;
+    }
+
+    /**
+     * Pauses the display durations of the ToolTips in this
+     * ToolTipRelativeLayout, for example while the user interacts with them.
+     * They are paused automatically while this ToolTipRelativeLayout is not
+     * visible. See {@link ToolTip#withDisplayDuration(long)}.
+     */
+    public void pauseToolTipTimeouts() {
+        mToolTipTimeoutsPaused = true;
+        updateDismissTimerPaused();
+    }
+
+    /**
+     * Resumes the display durations paused using {@link #pauseToolTipTimeouts()}.
+     */
+    public void resumeToolTipTimeouts() {
+        mToolTipTimeoutsPaused = false;
+        updateDismissTimerPaused();
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(final int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        mWindowVisible = visibility == VISIBLE;
+        updateDismissTimerPaused();
+    }
+
+    private void updateDismissTimerPaused() {
+        mDismissTimer.setPaused(mToolTipTimeoutsPaused || !mWindowVisible);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        mAnchorTracker.onAttachedToWindow();
+        mFirstPreDrawTracker.onAttachedToWindow();
+        mShowScheduler.onAttachedToWindow();
+        mToolTipRegistry.onAttachedToWindow();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        mAnchorTracker.onDetachedFromWindow();
+        mFirstPreDrawTracker.onDetachedFromWindow();
+        mShowScheduler.onDetachedFromWindow();
+        mToolTipRegistry.onDetachedFromWindow();
+        super.onDetachedFromWindow();
+    }
+
+    /**
+     * Sets whether touching anywhere outside the ToolTips dismisses all
+     * ToolTips in this ToolTipRelativeLayout. The touch is still passed on
+     * to the Views below. Defaults to false. Dismissed ToolTipViews notify
+     * their {@link ToolTipView.OnToolTipViewDismissedListener}.
+     */
+    public void setDismissOnOutsideTouch(final boolean dismissOnOutsideTouch) {
+        mDismissOnOutsideTouch = dismissOnOutsideTouch;
+    }
+
+    public boolean isDismissOnOutsideTouch() {
+        return mDismissOnOutsideTouch;
+    }
+
+    /**
+     * Sets whether touching the anchor View of a ToolTip dismisses that
+     * ToolTip. The touch is still passed on to the anchor View. Defaults to
+     * false. Dismissed ToolTipViews notify their
+     * {@link ToolTipView.OnToolTipViewDismissedListener}.
+     */
+    public void setDismissOnAnchorTouch(final boolean dismissOnAnchorTouch) {
+        mDismissOnAnchorTouch = dismissOnAnchorTouch;
+    }
+
+    public boolean isDismissOnAnchorTouch() {
+        return mDismissOnAnchorTouch;
+    }
+
+    /**
+     * Sets whether the shown ToolTips are saved with the instance state of
+     * this ToolTipRelativeLayout, and shown again when it is restored, for
+     * example after a rotation. Defaults to false. Only enable this if the
+     * ToolTips are not shown again in {@code onCreate()}, or they will be
+     * shown twice. Restored ToolTips use the default typeface, since
+     * typefaces cannot be saved.
+     */
+    public void setSaveToolTipsEnabled(final boolean saveToolTipsEnabled) {
+        mSaveToolTipsEnabled = saveToolTipsEnabled;
+    }
+
+    public boolean isSaveToolTipsEnabled() {
+        return mSaveToolTipsEnabled;
+    }
+
+    /**
+     * Before Honeycomb, ToolTipViews are drawn at their translated position
+     * but only receive touches at their layout position. The ToolTipView a
+     * gesture starts on is therefore looked up in the bounds index, and
+     * receives the gesture with its translation taken into account.
+     */
+    @Override
+    public boolean dispatchTouchEvent(final MotionEvent event) {
+        if (!mPreHoneycomb) {
+            return super.dispatchTouchEvent(event);
+        }
+
+        final int action = event.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN) {
+            mTranslatedTouchTarget = mToolTipViewBounds.findAt((int) event.getX(), (int) event.getY());
+            if (mTranslatedTouchTarget != null && !mTranslatedTouchTarget.dispatchTranslatedTouchEvent(event)) {
+                mTranslatedTouchTarget = null;
+                return super.dispatchTouchEvent(event);
+            }
+            return mTranslatedTouchTarget != null || super.dispatchTouchEvent(event);
+        }
+
+        if (mTranslatedTouchTarget == null) {
+            return super.dispatchTouchEvent(event);
+        }
+
+        final ToolTipView toolTipView = mTranslatedTouchTarget;
+        if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL) {
+            mTranslatedTouchTarget = null;
+        }
+        return toolTipView.dispatchTranslatedTouchEvent(event);
+    }
+
+    /**
+     * Dismisses ToolTips when a touch starts outside of them, if enabled.
+     * The touched ToolTip or anchor is looked up in the bounds indexes, so
+     * this does not depend on the number of visible ToolTips and does not
+     * allocate. Never intercepts the touch.
+     */
+    @Override
+    public boolean onInterceptTouchEvent(final MotionEvent event) {
+        if (event.getActionMasked() == MotionEvent.ACTION_DOWN && (mDismissOnOutsideTouch || mDismissOnAnchorTouch)) {
+            dismissToolTipViewsForTouch((int) event.getX(), (int) event.getY());
+        }
+        return super.onInterceptTouchEvent(event);
+    }
+
+    private void dismissToolTipViewsForTouch(final int x, final int y) {
+        if (mToolTipViewBounds.findAt(x, y) != null) {
+            /* The ToolTipView handles touches on itself. */
+            return;
+        }
+
+        if (mDismissOnAnchorTouch) {
+            final ToolTipView toolTipView = mAnchorBounds.findAt(x, y);
+            if (toolTipView != null) {
+                toolTipView.dismiss();
+            }
+        }
+
+        if (mDismissOnOutsideTouch && !mToolTipViewBounds.isEmpty()) {
+            /* dismiss() may remove a ToolTipView from this layout right away. */
+            for (int i = getChildCount() - 1; i >= 0; i--) {
+                if (getChildAt(i) instanceof ToolTipView) {
+                    ((ToolTipView) getChildAt(i)).dismiss();
+                }
+            }
+        }
+    }
+
+    ToolTipSpatialIndex<ToolTipView> getToolTipViewBounds() {
+        return mToolTipViewBounds;
+    }
+
+    ToolTipSpatialIndex<ToolTipView> getAnchorBounds() {
+        return mAnchorBounds;
+    }
+
+    ToolTipDismissTimer getDismissTimer() {
+        return mDismissTimer;
+    }
+
+    ToolTipAnchorTracker getAnchorTracker() {
+        return mAnchorTracker;
+    }
+
+    /**
+     * @return whether ToolTipViews hide their pointers using their alpha, and
+     * receive touches at their translated position through this layout, as
+     * needed before Honeycomb.
+     */
+    boolean isPreHoneycomb() {
+        return mPreHoneycomb;
+    }
+
+    ToolTipAnimationDriver getAnimationDriver() {
+        return mAnimationDriver;
+    }
+
+    /**
+     * Called when given {@link ToolTipView} starts to disappear, so it is no
+     * longer taken into account for other ToolTipViews.
+     */
+    void onToolTipViewRemoving(final ToolTipView toolTipView) {
+        mToolTipViewBounds.remove(toolTipView);
+        mAnchorBounds.remove(toolTipView);
+        mAnchorTracker.untrack(toolTipView);
+        mFirstPreDrawTracker.untrack(toolTipView);
+        mDismissTimer.cancel(toolTipView);
+    }
+
+    /**
+     * Sets the maximum number of colors for which the filters that tint
+     * ToolTip frames and pointers are kept. This cache is shared by all
+     * ToolTipRelativeLayouts.
+     */
+    public static void setMaxColorFilterCacheSize(final int maxSize) {
+        ColorFilterCache.getInstance().setMaxSize(maxSize);
+    }
+
+    /**
+     * @return the number of colors for which the filters that tint ToolTip frames and pointers are currently kept.
+     */
+    public static int getColorFilterCacheSize() {
+        return ColorFilterCache.getInstance().getSize();
+    }
+
+    /**
+     * @return the fraction of ToolTip colors whose filter was found in the color filter cache, between 0 and 1.
+     */
+    public static float getColorFilterCacheHitRate() {
+        final ColorFilterCache cache = ColorFilterCache.getInstance();
+        final int requestCount = cache.getHitCount() + cache.getMissCount();
+        return requestCount == 0 ? 0 : cache.getHitCount() / (float) requestCount;
+    }
+
+    /**
+     * Sets the maximum number of bytes the pre-rendered ToolTip texts may
+     * take. See {@link ToolTip#withBitmapCaching()}. This cache is shared by
+     * all ToolTipRelativeLayouts, and defaults to 1/64th of the maximum heap size.
+     */
+    public static void setTextBitmapCacheMaxBytes(final long maxBytes) {
+        ToolTipBitmapCache.getInstance().setMaxBytes(maxBytes);
+    }
+
+    /**
+     * @return the number of bytes the pre-rendered ToolTip texts currently take.
+     */
+    public static long getTextBitmapCacheBytes() {
+        return ToolTipBitmapCache.getInstance().getBytes();
+    }
+
+    /**
+     * @return the number of times a pre-rendered ToolTip text was found.
+     */
+    public static int getTextBitmapCacheHitCount() {
+        return ToolTipBitmapCache.getInstance().getHitCount();
+    }
+
+    /**
+     * @return the number of times a ToolTip text had to be measured and rendered.
+     */
+    public static int getTextBitmapCacheMissCount() {
+        return ToolTipBitmapCache.getInstance().getMissCount();
+    }
+
+    /**
+     * Removes all pre-rendered ToolTip texts. On Ice Cream Sandwich and up
+     * this happens automatically when the system is low on memory; call this
+     * method from onLowMemory() to do the same on older versions.
+     */
+    public static void clearTextBitmapCache() {
+        ToolTipBitmapCache.getInstance().clear();
+    }
+
+    /**
+     * Starts inflating the content layout of given ToolTip in the background, if the ToolTipView is waiting for it.
+     */
+    private void inflateContentView(final ToolTipView toolTipView, final ToolTip toolTip) {
+        if (!toolTipView.isContentPending()) {
+            return;
+        }
+
+        ToolTipContentInflater.inflate(getContext(), toolTip.getContentViewResId(), ToolTipBackgroundExecutor.get(),
+                new ToolTipContentInflater.OnContentViewInflatedListener() {
+                    @Override
+                    public void onContentViewInflated(final View view) {
+                        toolTipView.setInflatedContentView(toolTip, view);
+                    }
+                }
+        );
+    }
+
+    private void onToolTipViewBound(final ToolTipView toolTipView, final long startNanos) {
+        mMetricsListener.onToolTipBound(toolTipView, startNanos, System.nanoTime());
+        mFirstPreDrawTracker.track(toolTipView);
+    }
+
+    private ToolTipView obtainToolTipView(final ToolTip.RenderMode renderMode) {
+        ToolTipView toolTipView = mToolTipViewPool.acquire(renderMode);
+        if (toolTipView == null) {
+            toolTipView = new ToolTipView(getContext(), renderMode);
+        }
+        return toolTipView;
+    }
+
+    /**
+     * Removes given {@link ToolTipView} and keeps it for reuse by a next ToolTip.
+     */
+    void recycleToolTipView(final ToolTipView toolTipView) {
+        onToolTipViewRemoving(toolTipView);
+        removeView(toolTipView);
+        mToolTipViewPool.release(toolTipView);
+    }
+
+    public interface OnScheduledToolTipShownListener {
+
+        /**
+         * Called when a ToolTip that was scheduled using
+         * {@link ToolTipRelativeLayout#scheduleToolTip(ToolTip, View, int, long)} has been shown.
+         *
+         * @param toolTipView
+         *            the ToolTipView that was created.
+         * @param view
+         *            the View the ToolTipView is positioned relative to.
+         */
+        void onScheduledToolTipShown(ToolTipView toolTipView, View view);
+    }
+
+    static class SavedState extends BaseSavedState {
+
+        private final List<ToolTipSpec> mToolTipSpecs;
+        private final int[] mAnchorIds;
+        private final int[] mVisibilities;
+
+        SavedState(final Parcelable superState, final List<ToolTipSpec> toolTipSpecs, final int[] anchorIds, final int[] visibilities) {
+            super(superState);
+            mToolTipSpecs = toolTipSpecs;
+            mAnchorIds = anchorIds;
+            mVisibilities = visibilities;
+        }
+
+        private SavedState(final Parcel source) {
+            super(source);
+            mToolTipSpecs = source.createTypedArrayList(ToolTipSpec.CREATOR);
+            mAnchorIds = source.createIntArray();
+            mVisibilities = source.createIntArray();
+        }
+
+        @Override
+        public void writeToParcel(final Parcel dest, final int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeTypedList(mToolTipSpecs);
+            dest.writeIntArray(mAnchorIds);
+            dest.writeIntArray(mVisibilities);
+        }
+
+        public static final Creator<SavedState> CREATOR = new Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(final Parcel source) {
+                return new SavedState(source);
+            }
+
+            @Override
+            public SavedState[] newArray(final int size) {
+                return new SavedState[size];
+            }
+        };
     }
 }
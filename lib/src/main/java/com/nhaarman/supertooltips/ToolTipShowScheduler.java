@@ -0,0 +1,262 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.view.Choreographer;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shows queued ToolTips aligned to frames, instead of at wall clock
+ * delays. Requests are released in order of priority, at most a given
+ * number per frame, and no sooner than their minimum spacing after the
+ * previously released request. While the main thread is busy, that is
+ * when the previous frame was late or the current frame is already half
+ * used, no ToolTips are created. While the minimum spacing holds back the
+ * next request, a single frame is requested for when it has passed.
+ * Frames are received from the {@link Choreographer} on Jelly Bean and up,
+ * and from a single Handler message otherwise; request entries are
+ * recycled.
+ */
+class ToolTipShowScheduler implements Handler.Callback {
+
+    private static final int MSG_FRAME = 1;
+
+    private static final long FRAME_INTERVAL_NANOS = 16666667;
+    private static final long FRAME_INTERVAL_MILLIS = 16;
+    private static final long NANOS_PER_MILLI = 1000000;
+
+    /**
+     * The part of a frame that may be used before ToolTips are deferred to the next frame.
+     */
+    private static final long FRAME_BUDGET_NANOS = FRAME_INTERVAL_NANOS / 2;
+
+    /**
+     * A frame that starts this much later than the previous one means the main thread was busy.
+     */
+    private static final long LATE_FRAME_NANOS = FRAME_INTERVAL_NANOS * 3 / 2;
+
+    private final ToolTipRelativeLayout mToolTipRelativeLayout;
+    private final Handler mHandler = new Handler(Looper.getMainLooper(), this);
+    private final FrameCallback mFrameCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN ? new FrameCallback() : null;
+
+    private final List<Request> mRequests = new ArrayList<>();
+    private final List<Request> mRecycledRequests = new ArrayList<>();
+
+    private int mMaxToolTipsPerFrame = 1;
+    private boolean mFrameScheduled;
+    private boolean mFrameDelayed;
+    private boolean mAttached;
+    private long mLastFrameNanos;
+    private long mLastReleaseNanos;
+
+    ToolTipShowScheduler(final ToolTipRelativeLayout toolTipRelativeLayout) {
+        mToolTipRelativeLayout = toolTipRelativeLayout;
+    }
+
+    void schedule(final ToolTip toolTip, final View view, final int priority, final long minSpacingMillis) {
+        final Request request = mRecycledRequests.isEmpty() ? new Request() : mRecycledRequests.remove(mRecycledRequests.size() - 1);
+        request.mToolTip = toolTip;
+        request.mView = view;
+        request.mPriority = priority;
+        request.mMinSpacingNanos = minSpacingMillis * NANOS_PER_MILLI;
+
+        /* Keep the queue sorted by descending priority, and in order of scheduling for equal priorities. */
+        int index = mRequests.size();
+        while (index > 0 && mRequests.get(index - 1).mPriority < priority) {
+            index--;
+        }
+        mRequests.add(index, request);
+
+        if (mFrameDelayed) {
+            /* The new request may not need to wait for the spacing of the previous head of the queue. */
+            unscheduleFrame();
+        }
+        scheduleFrame(0);
+    }
+
+    boolean cancel(final ToolTip toolTip) {
+        for (int i = 0; i < mRequests.size(); i++) {
+            if (mRequests.get(i).mToolTip == toolTip) {
+                recycle(mRequests.remove(i));
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void cancelAll() {
+        while (!mRequests.isEmpty()) {
+            recycle(mRequests.remove(mRequests.size() - 1));
+        }
+    }
+
+    int getPendingCount() {
+        return mRequests.size();
+    }
+
+    void setMaxToolTipsPerFrame(final int maxToolTipsPerFrame) {
+        mMaxToolTipsPerFrame = maxToolTipsPerFrame;
+    }
+
+    int getMaxToolTipsPerFrame() {
+        return mMaxToolTipsPerFrame;
+    }
+
+    void onAttachedToWindow() {
+        mAttached = true;
+        scheduleFrame(0);
+    }
+
+    void onDetachedFromWindow() {
+        mAttached = false;
+        unscheduleFrame();
+    }
+
+    @Override
+    public boolean handleMessage(final Message msg) {
+        if (msg.what != MSG_FRAME) {
+            return false;
+        }
+
+        doFrame(System.nanoTime());
+        return true;
+    }
+
+    private void doFrame(final long frameNanos) {
+        mFrameScheduled = false;
+        mFrameDelayed = false;
+
+        final boolean lateFrame = mLastFrameNanos != 0 && frameNanos - mLastFrameNanos > LATE_FRAME_NANOS;
+        mLastFrameNanos = frameNanos;
+
+        long remainingSpacingNanos = 0;
+        if (!lateFrame && System.nanoTime() - frameNanos < FRAME_BUDGET_NANOS) {
+            remainingSpacingNanos = releaseRequests();
+        }
+
+        if (mRequests.isEmpty()) {
+            mLastFrameNanos = 0;
+        } else {
+            scheduleFrame((remainingSpacingNanos + NANOS_PER_MILLI - 1) / NANOS_PER_MILLI);
+        }
+    }
+
+    /**
+     * Releases the requests that are due in this frame.
+     *
+     * @return the time until the minimum spacing of the next request has passed, in nanoseconds, or 0 if it is not
+     * held back by its spacing.
+     */
+    private long releaseRequests() {
+        int releasedCount = 0;
+        while (releasedCount < mMaxToolTipsPerFrame && !mRequests.isEmpty()) {
+            final long now = System.nanoTime();
+            final Request request = mRequests.get(0);
+            if (mLastReleaseNanos != 0 && now - mLastReleaseNanos < request.mMinSpacingNanos) {
+                return request.mMinSpacingNanos - (now - mLastReleaseNanos);
+            }
+
+            mRequests.remove(0);
+            final ToolTip toolTip = request.mToolTip;
+            final View view = request.mView;
+            recycle(request);
+
+            mLastReleaseNanos = now;
+            releasedCount++;
+            mToolTipRelativeLayout.onScheduledToolTipReleased(toolTip, view);
+        }
+        return 0;
+    }
+
+    /**
+     * Requests a frame after given delay, or the next frame if the delay is 0.
+     */
+    private void scheduleFrame(final long delayMillis) {
+        if (mFrameScheduled || !mAttached || mRequests.isEmpty()) {
+            return;
+        }
+        mFrameScheduled = true;
+        mFrameDelayed = delayMillis > 0;
+        if (mFrameDelayed) {
+            /* The delayed frame does not follow the previous one: it says nothing about the main thread being busy. */
+            mLastFrameNanos = 0;
+        }
+
+        if (mFrameCallback != null) {
+            mFrameCallback.post(delayMillis);
+        } else {
+            mHandler.sendEmptyMessageDelayed(MSG_FRAME, Math.max(FRAME_INTERVAL_MILLIS, delayMillis));
+        }
+    }
+
+    private void unscheduleFrame() {
+        if (!mFrameScheduled) {
+            return;
+        }
+        mFrameScheduled = false;
+        mFrameDelayed = false;
+        mLastFrameNanos = 0;
+
+        if (mFrameCallback != null) {
+            mFrameCallback.remove();
+        } else {
+            mHandler.removeMessages(MSG_FRAME);
+        }
+    }
+
+    private void recycle(final Request request) {
+        request.mToolTip = null;
+        request.mView = null;
+        mRecycledRequests.add(request);
+    }
+
+    private static class Request {
+
+        private ToolTip mToolTip;
+        private View mView;
+        private int mPriority;
+        private long mMinSpacingNanos;
+    }
+
+    /**
+     * Only instantiated on Jelly Bean and up, since Choreographer does not exist before.
+     */
+    @TargetApi(16)
+    private class FrameCallback implements Choreographer.FrameCallback {
+
+        void post(final long delayMillis) {
+            Choreographer.getInstance().postFrameCallbackDelayed(this, delayMillis);
+        }
+
+        void remove() {
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(final long frameTimeNanos) {
+            ToolTipShowScheduler.this.doFrame(frameTimeNanos);
+        }
+    }
+}
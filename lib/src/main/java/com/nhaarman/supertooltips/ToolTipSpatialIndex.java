@@ -0,0 +1,274 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A uniform grid of rectangles, used to find out which visible ToolTips a
+ * candidate position would overlap, or which ToolTip is touched, without
+ * comparing against every ToolTip. Queries do not allocate. Like the
+ * {@link ToolTipPlacementEngine}, this class does not depend on any Android
+ * classes.
+ *
+ * @param <K> the type of the keys the rectangles are stored by.
+ */
+public class ToolTipSpatialIndex<K> {
+
+    /**
+     * The default width and height of a grid cell, in pixels.
+     */
+    public static final int DEFAULT_CELL_SIZE = 128;
+
+    private final int mCellSize;
+    private final Map<K, Entry<K>> mEntries = new HashMap<>();
+    private final Map<CellKey, Cell<K>> mCells = new HashMap<>();
+
+    /**
+     * Cells that became empty, kept so that moving a rectangle to another cell does not allocate a new one.
+     */
+    private final List<Cell<K>> mRecycledCells = new ArrayList<>();
+
+    /**
+     * Reused to look up cells, so that queries do not have to box their cell keys.
+     */
+    private final CellKey mLookupCellKey = new CellKey();
+
+    /**
+     * Incremented for every query, so that an entry spanning multiple cells is only counted once.
+     */
+    private int mQueryStamp;
+
+    /**
+     * Incremented for every new key, so that the most recently added rectangle can be found on top.
+     */
+    private int mSequence;
+
+    public ToolTipSpatialIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    public ToolTipSpatialIndex(final int cellSize) {
+        mCellSize = cellSize;
+    }
+
+    /**
+     * Stores given rectangle for given key, replacing any rectangle that
+     * was previously stored for it. A rectangle that moves within the same
+     * cells is updated in place, so following a moving ToolTip does not
+     * allocate.
+     */
+    public void put(final K key, final int left, final int top, final int right, final int bottom) {
+        Entry<K> entry = mEntries.get(key);
+        if (entry == null) {
+            entry = new Entry<>(key, ++mSequence);
+            mEntries.put(key, entry);
+        } else if (toCell(left) == toCell(entry.mLeft) && toCell(right - 1) == toCell(entry.mRight - 1)
+                && toCell(top) == toCell(entry.mTop) && toCell(bottom - 1) == toCell(entry.mBottom - 1)) {
+            entry.set(left, top, right, bottom);
+            return;
+        } else {
+            removeFromCells(entry);
+        }
+
+        entry.set(left, top, right, bottom);
+        addToCells(entry);
+    }
+
+    /**
+     * Removes the rectangle that is stored for given key, if any.
+     */
+    public void remove(final K key) {
+        final Entry<K> entry = mEntries.remove(key);
+        if (entry != null) {
+            removeFromCells(entry);
+        }
+    }
+
+    private void addToCells(final Entry<K> entry) {
+        for (int cellX = toCell(entry.mLeft); cellX <= toCell(entry.mRight - 1); cellX++) {
+            for (int cellY = toCell(entry.mTop); cellY <= toCell(entry.mBottom - 1); cellY++) {
+                Cell<K> cell = mCells.get(mLookupCellKey.set(cellX, cellY));
+                if (cell == null) {
+                    cell = mRecycledCells.isEmpty() ? new Cell<K>() : mRecycledCells.remove(mRecycledCells.size() - 1);
+                    cell.mKey.set(cellX, cellY);
+                    mCells.put(cell.mKey, cell);
+                }
+                cell.mEntries.add(entry);
+            }
+        }
+    }
+
+    private void removeFromCells(final Entry<K> entry) {
+        for (int cellX = toCell(entry.mLeft); cellX <= toCell(entry.mRight - 1); cellX++) {
+            for (int cellY = toCell(entry.mTop); cellY <= toCell(entry.mBottom - 1); cellY++) {
+                final Cell<K> cell = mCells.get(mLookupCellKey.set(cellX, cellY));
+                if (cell != null) {
+                    cell.mEntries.remove(entry);
+                    if (cell.mEntries.isEmpty()) {
+                        mCells.remove(mLookupCellKey);
+                        mRecycledCells.add(cell);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the total area in which given rectangle overlaps the stored
+     * rectangles, ignoring the rectangle stored for given key.
+     */
+    public long getOverlapArea(final int left, final int top, final int right, final int bottom, final K ignoredKey) {
+        if (mEntries.isEmpty() || right <= left || bottom <= top) {
+            return 0;
+        }
+
+        mQueryStamp++;
+
+        long overlapArea = 0;
+        for (int cellX = toCell(left); cellX <= toCell(right - 1); cellX++) {
+            for (int cellY = toCell(top); cellY <= toCell(bottom - 1); cellY++) {
+                final Cell<K> cell = mCells.get(mLookupCellKey.set(cellX, cellY));
+                if (cell == null) {
+                    continue;
+                }
+
+                final int cellSize = cell.mEntries.size();
+                for (int i = 0; i < cellSize; i++) {
+                    final Entry<K> entry = cell.mEntries.get(i);
+                    if (entry.mQueryStamp == mQueryStamp || entry.mKey.equals(ignoredKey)) {
+                        continue;
+                    }
+                    entry.mQueryStamp = mQueryStamp;
+
+                    final int overlapWidth = Math.min(right, entry.mRight) - Math.max(left, entry.mLeft);
+                    final int overlapHeight = Math.min(bottom, entry.mBottom) - Math.max(top, entry.mTop);
+                    if (overlapWidth > 0 && overlapHeight > 0) {
+                        overlapArea += (long) overlapWidth * overlapHeight;
+                    }
+                }
+            }
+        }
+        return overlapArea;
+    }
+
+    /**
+     * Returns the key of the stored rectangle that contains given point. If
+     * multiple rectangles contain it, the key that was added last is
+     * returned, like the View that is drawn on top.
+     *
+     * @return the key, or null if no rectangle contains given point.
+     */
+    public K findAt(final int x, final int y) {
+        if (mEntries.isEmpty()) {
+            return null;
+        }
+
+        final Cell<K> cell = mCells.get(mLookupCellKey.set(toCell(x), toCell(y)));
+        if (cell == null) {
+            return null;
+        }
+
+        Entry<K> result = null;
+        final int cellSize = cell.mEntries.size();
+        for (int i = 0; i < cellSize; i++) {
+            final Entry<K> entry = cell.mEntries.get(i);
+            if (x >= entry.mLeft && x < entry.mRight && y >= entry.mTop && y < entry.mBottom
+                    && (result == null || entry.mSequence > result.mSequence)) {
+                result = entry;
+            }
+        }
+        return result == null ? null : result.mKey;
+    }
+
+    public boolean isEmpty() {
+        return mEntries.isEmpty();
+    }
+
+    public int size() {
+        return mEntries.size();
+    }
+
+    public void clear() {
+        for (final Cell<K> cell : mCells.values()) {
+            cell.mEntries.clear();
+            mRecycledCells.add(cell);
+        }
+        mEntries.clear();
+        mCells.clear();
+    }
+
+    private int toCell(final int coordinate) {
+        /* Rounds towards negative infinity, also for coordinates left of or above the container. */
+        return coordinate >= 0 ? coordinate / mCellSize : (coordinate + 1) / mCellSize - 1;
+    }
+
+    /**
+     * The position of a grid cell. The key of a stored cell is only changed while the cell is recycled.
+     */
+    private static class CellKey {
+
+        private long mValue;
+
+        CellKey set(final int cellX, final int cellY) {
+            mValue = ((long) cellX << 32) | (cellY & 0xffffffffL);
+            return this;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof CellKey && ((CellKey) o).mValue == mValue;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (mValue ^ (mValue >>> 32));
+        }
+    }
+
+    private static class Cell<K> {
+
+        private final CellKey mKey = new CellKey();
+        private final List<Entry<K>> mEntries = new ArrayList<>(2);
+    }
+
+    private static class Entry<K> {
+
+        private final K mKey;
+        private final int mSequence;
+        private int mLeft;
+        private int mTop;
+        private int mRight;
+        private int mBottom;
+        private int mQueryStamp;
+
+        Entry(final K key, final int sequence) {
+            mKey = key;
+            mSequence = sequence;
+        }
+
+        void set(final int left, final int top, final int right, final int bottom) {
+            mLeft = left;
+            mTop = top;
+            mRight = right;
+            mBottom = bottom;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.graphics.Typeface;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.text.Layout;
+import android.text.Spanned;
+import android.text.SpannedString;
+import android.text.TextUtils;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * An immutable description of a {@link ToolTip}. Unlike a ToolTip, a
+ * ToolTipSpec holds no Views, so it can be built once, kept in a static
+ * field, shared between screens and used as a key. Two ToolTipSpecs are
+ * equal when they describe the same ToolTip; texts are compared by their
+ * characters. Create one using {@link ToolTip#toSpec()}, and show it using
+ * {@link ToolTipRelativeLayout#showToolTipForView(ToolTipSpec, android.view.View)}.
+ * <p/>
+ * The text layout prepared using
+ * {@link ToolTipRelativeLayout#prepareToolTip(ToolTipSpec, int)} is shared
+ * by all ToolTips shown for the same ToolTipSpec instance; use
+ * {@link #intern()} to share it between equal ToolTipSpecs too.
+ */
+public final class ToolTipSpec implements Parcelable {
+
+    private static final int FLAG_SHADOW = 1;
+    private static final int FLAG_TRACK_ANCHOR = 1 << 1;
+    private static final int FLAG_CACHE_BITMAP = 1 << 2;
+
+    private static final Object[] NO_SPANS = new Object[0];
+
+    private static final Map<ToolTipSpec, WeakReference<ToolTipSpec>> sInternedSpecs = new WeakHashMap<>();
+
+    private final CharSequence mText;
+    private final int mTextResId;
+    private final int mColor;
+    private final int mTextColor;
+    private final int mContentViewResId;
+    private final ToolTip.AnimationType mAnimationType;
+    private final ToolTip.RenderMode mRenderMode;
+    private final int mFlags;
+    private final long mDisplayDuration;
+    private final Typeface mTypeface;
+
+    private volatile Layout mPreparedTextLayout;
+
+    ToolTipSpec(final ToolTip toolTip) {
+        mText = copyText(toolTip.getText());
+        mTextResId = toolTip.getTextResId();
+        mColor = toolTip.getColor();
+        mTextColor = toolTip.getTextColor();
+        mContentViewResId = toolTip.getContentViewResId();
+        mAnimationType = toolTip.getAnimationType();
+        mRenderMode = toolTip.getRenderMode();
+        mFlags = (toolTip.shouldShowShadow() ? FLAG_SHADOW : 0)
+                | (toolTip.shouldTrackAnchor() ? FLAG_TRACK_ANCHOR : 0)
+                | (toolTip.shouldCacheBitmap() ? FLAG_CACHE_BITMAP : 0);
+        mDisplayDuration = toolTip.getDisplayDuration();
+        mTypeface = toolTip.getTypeface();
+    }
+
+    private ToolTipSpec(final Parcel source) {
+        mText = source.readInt() == 0 ? null : TextUtils.CHAR_SEQUENCE_CREATOR.createFromParcel(source);
+        mTextResId = source.readInt();
+        mColor = source.readInt();
+        mTextColor = source.readInt();
+        mContentViewResId = source.readInt();
+        mAnimationType = ToolTip.AnimationType.values()[source.readByte()];
+        mRenderMode = ToolTip.RenderMode.values()[source.readByte()];
+        mFlags = source.readByte();
+        mDisplayDuration = source.readLong();
+        mTypeface = null;
+    }
+
+    /**
+     * @return an immutable copy of given text, so that it cannot change after this ToolTipSpec has been used as a key.
+     */
+    private static CharSequence copyText(final CharSequence text) {
+        if (text == null || text instanceof String) {
+            return text;
+        }
+        return text instanceof Spanned ? new SpannedString(text) : text.toString();
+    }
+
+    /**
+     * Returns the canonical instance of this ToolTipSpec: the first equal
+     * ToolTipSpec that was interned and is still referenced, or this one.
+     * ToolTipSpecs with styled text are only equal when their texts carry
+     * the same span objects at the same positions.
+     */
+    public ToolTipSpec intern() {
+        synchronized (sInternedSpecs) {
+            final WeakReference<ToolTipSpec> reference = sInternedSpecs.get(this);
+            final ToolTipSpec internedSpec = reference == null ? null : reference.get();
+            if (internedSpec != null) {
+                return internedSpec;
+            }
+
+            sInternedSpecs.put(this, new WeakReference<>(this));
+            return this;
+        }
+    }
+
+    /**
+     * @return a new ToolTip as described by this ToolTipSpec, which can be modified further.
+     */
+    public ToolTip toToolTip() {
+        final ToolTip toolTip = new ToolTip()
+                .withColor(mColor)
+                .withTextColor(mTextColor)
+                .withContentView(mContentViewResId)
+                .withAnimationType(mAnimationType)
+                .withRenderMode(mRenderMode)
+                .withDisplayDuration(mDisplayDuration)
+                .withTypeface(mTypeface);
+
+        if (mText != null) {
+            toolTip.withText(mText);
+        } else if (mTextResId != 0) {
+            toolTip.withText(mTextResId);
+        }
+
+        if (shouldShowShadow()) {
+            toolTip.withShadow();
+        }
+        if (shouldTrackAnchor()) {
+            toolTip.withAnchorTracking();
+        }
+        if (shouldCacheBitmap()) {
+            toolTip.withBitmapCaching();
+        }
+
+        final Layout preparedTextLayout = mPreparedTextLayout;
+        if (preparedTextLayout != null) {
+            toolTip.setPreparedTextLayout(preparedTextLayout, toolTip.getTextGeneration());
+        }
+        return toolTip;
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    public int getTextResId() {
+        return mTextResId;
+    }
+
+    public int getColor() {
+        return mColor;
+    }
+
+    public int getTextColor() {
+        return mTextColor;
+    }
+
+    public int getContentViewResId() {
+        return mContentViewResId;
+    }
+
+    public ToolTip.AnimationType getAnimationType() {
+        return mAnimationType;
+    }
+
+    public ToolTip.RenderMode getRenderMode() {
+        return mRenderMode;
+    }
+
+    public boolean shouldShowShadow() {
+        return (mFlags & FLAG_SHADOW) != 0;
+    }
+
+    public boolean shouldTrackAnchor() {
+        return (mFlags & FLAG_TRACK_ANCHOR) != 0;
+    }
+
+    public boolean shouldCacheBitmap() {
+        return (mFlags & FLAG_CACHE_BITMAP) != 0;
+    }
+
+    public long getDisplayDuration() {
+        return mDisplayDuration;
+    }
+
+    public Typeface getTypeface() {
+        return mTypeface;
+    }
+
+    Layout getPreparedTextLayout() {
+        return mPreparedTextLayout;
+    }
+
+    void setPreparedTextLayout(final Layout textLayout) {
+        mPreparedTextLayout = textLayout;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ToolTipSpec)) {
+            return false;
+        }
+
+        final ToolTipSpec other = (ToolTipSpec) o;
+        return mTextResId == other.mTextResId
+                && mColor == other.mColor
+                && mTextColor == other.mTextColor
+                && mContentViewResId == other.mContentViewResId
+                && mAnimationType == other.mAnimationType
+                && mRenderMode == other.mRenderMode
+                && mFlags == other.mFlags
+                && mDisplayDuration == other.mDisplayDuration
+                && textEquals(mText, other.mText)
+                && (mTypeface == null ? other.mTypeface == null : mTypeface.equals(other.mTypeface));
+    }
+
+    @Override
+    public int hashCode() {
+        int result = textHashCode(mText);
+        result = 31 * result + mTextResId;
+        result = 31 * result + mColor;
+        result = 31 * result + mTextColor;
+        result = 31 * result + mContentViewResId;
+        result = 31 * result + mAnimationType.hashCode();
+        result = 31 * result + mRenderMode.hashCode();
+        result = 31 * result + mFlags;
+        result = 31 * result + (int) (mDisplayDuration ^ (mDisplayDuration >>> 32));
+        result = 31 * result + (mTypeface == null ? 0 : mTypeface.hashCode());
+        return result;
+    }
+
+    /**
+     * Compares given texts including their spans, so that the same characters styled differently are not equal.
+     */
+    private static boolean textEquals(final CharSequence text, final CharSequence otherText) {
+        if (!TextUtils.equals(text, otherText)) {
+            return false;
+        }
+
+        final Object[] spans = getSpans(text);
+        final Object[] otherSpans = getSpans(otherText);
+        if (spans.length != otherSpans.length) {
+            return false;
+        }
+
+        for (int i = 0; i < spans.length; i++) {
+            final Spanned spanned = (Spanned) text;
+            final Spanned otherSpanned = (Spanned) otherText;
+            if (!spans[i].equals(otherSpans[i])
+                    || spanned.getSpanStart(spans[i]) != otherSpanned.getSpanStart(otherSpans[i])
+                    || spanned.getSpanEnd(spans[i]) != otherSpanned.getSpanEnd(otherSpans[i])
+                    || spanned.getSpanFlags(spans[i]) != otherSpanned.getSpanFlags(otherSpans[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int textHashCode(final CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+
+        int result = text.toString().hashCode();
+        final Object[] spans = getSpans(text);
+        for (final Object span : spans) {
+            final Spanned spanned = (Spanned) text;
+            result = 31 * result + spanned.getSpanStart(span);
+            result = 31 * result + spanned.getSpanEnd(span);
+            result = 31 * result + spanned.getSpanFlags(span);
+        }
+        return result;
+    }
+
+    private static Object[] getSpans(final CharSequence text) {
+        return text instanceof Spanned ? ((Spanned) text).getSpans(0, text.length(), Object.class) : NO_SPANS;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    /**
+     * Writes this ToolTipSpec to given Parcel. The typeface is not written,
+     * since Typefaces cannot be parceled.
+     */
+    @Override
+    public void writeToParcel(final Parcel dest, final int flags) {
+        if (mText == null) {
+            dest.writeInt(0);
+        } else {
+            dest.writeInt(1);
+            TextUtils.writeToParcel(mText, dest, flags);
+        }
+        dest.writeInt(mTextResId);
+        dest.writeInt(mColor);
+        dest.writeInt(mTextColor);
+        dest.writeInt(mContentViewResId);
+        dest.writeByte((byte) mAnimationType.ordinal());
+        dest.writeByte((byte) mRenderMode.ordinal());
+        dest.writeByte((byte) mFlags);
+        dest.writeLong(mDisplayDuration);
+    }
+
+    public static final Creator<ToolTipSpec> CREATOR = new Creator<ToolTipSpec>() {
+        @Override
+        public ToolTipSpec createFromParcel(final Parcel source) {
+            return new ToolTipSpec(source);
+        }
+
+        @Override
+        public ToolTipSpec[] newArray(final int size) {
+            return new ToolTipSpec[size];
+        }
+    };
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Computes the text {@link Layout} of a {@link ToolTip} on a background
+ * thread, so that showing the ToolTip later does not have to measure the
+ * text on the UI thread.
+ */
+final class ToolTipTextPreparer {
+
+    private ToolTipTextPreparer() {
+    }
+
+    /**
+     * Lays out given text with given paint on given Executor, no wider than
+     * given width, and hands the result to given callback on that Executor.
+     */
+    static void prepare(final CharSequence text, final TextPaint paint, final int maxWidth, final Executor executor, final Callback callback) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int desiredWidth = (int) Math.ceil(Layout.getDesiredWidth(text, paint));
+                final int width = Math.max(0, Math.min(maxWidth, desiredWidth));
+                callback.onTextPrepared(new StaticLayout(text, paint, width, Layout.Alignment.ALIGN_NORMAL, 1f, 0f, true));
+            }
+        });
+    }
+
+    interface Callback {
+
+        void onTextPrepared(Layout textLayout);
+    }
+}
@@ -17,106 +17,304 @@ package com.nhaarman.supertooltips;
 
 import android.annotation.SuppressLint;
 import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Path;
 import android.graphics.PorterDuff;
 import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
 import android.os.Build;
+import android.text.Layout;
+import android.text.Spanned;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewManager;
-import android.view.ViewTreeObserver;
+import android.widget.FrameLayout;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.RelativeLayout;
 import android.widget.TextView;
 
-import com.nineoldandroids.animation.Animator;
-import com.nineoldandroids.animation.AnimatorListenerAdapter;
-import com.nineoldandroids.animation.AnimatorSet;
-import com.nineoldandroids.animation.ObjectAnimator;
 import com.nineoldandroids.view.ViewHelper;
 
-import java.util.ArrayList;
-import java.util.Collection;
-
 /**
  * A ViewGroup to visualize ToolTips. Use
- * ToolTipRelativeLayout.showToolTipForView() to show ToolTips.
+ * ToolTipRelativeLayout.showToolTipForView() to show ToolTips.</p>NOTE: Once
+ * removed, a ToolTipView may be reused by its {@link ToolTipRelativeLayout} to
+ * show another ToolTip. Do not hold on to a ToolTipView after calling
+ * {@link #remove()}.
  */
-public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreDrawListener, View.OnClickListener {
+public class ToolTipView extends LinearLayout implements View.OnClickListener {
 
+    /**
+     * @deprecated ToolTipViews are no longer animated by property name. Kept for compatibility.
+     */
+    @Deprecated
     public static final String TRANSLATION_Y_COMPAT = "translationY";
+    /**
+     * @deprecated ToolTipViews are no longer animated by property name. Kept for compatibility.
+     */
+    @Deprecated
     public static final String TRANSLATION_X_COMPAT = "translationX";
+    /**
+     * @deprecated ToolTipViews are no longer animated by property name. Kept for compatibility.
+     */
+    @Deprecated
     public static final String SCALE_X_COMPAT = "scaleX";
+    /**
+     * @deprecated ToolTipViews are no longer animated by property name. Kept for compatibility.
+     */
+    @Deprecated
     public static final String SCALE_Y_COMPAT = "scaleY";
+    /**
+     * @deprecated ToolTipViews are no longer animated by property name. Kept for compatibility.
+     */
+    @Deprecated
     public static final String ALPHA_COMPAT = "alpha";
 
+    private static final int SHADOW_COLOR = 0x33000000;
+    private static final int NOT_LOOKED_UP = -1;
+
+    static final boolean PRE_HONEYCOMB = Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB;
+
+    private final ToolTip.RenderMode mRenderMode;
+
     private ImageView mTopPointerView;
     private View mTopFrame;
     private ViewGroup mContentHolder;
     private TextView mToolTipTV;
+    private PreparedTextView mPreparedTextView;
     private View mBottomFrame;
     private ImageView mBottomPointerView;
     private View mShadowView;
 
+    /* Only used in ToolTip.RenderMode.DRAWN */
+    private Paint mBubblePaint;
+    private Paint mShadowPaint;
+    private Path mBubblePath;
+    private RectF mBubbleRect;
+    private int mPointerWidth;
+    private int mPointerHeight;
+    private int mCornerRadius;
+    private int mShadowOffset;
+    private int mPointerCenterX;
+    private boolean mPointerUp;
+    private boolean mShowShadow;
+    private final ToolTipBitmapCache.Key mTextBitmapLookupKey = new ToolTipBitmapCache.Key();
+    private ToolTipBitmapCache.Key mTextBitmapKey;
+    private Bitmap mTextBitmap;
+    /* The maximum width mTextBitmapKey was last looked up for, or NOT_LOOKED_UP. */
+    private int mTextBitmapMaxWidth = NOT_LOOKED_UP;
+
+    /* Only used in ToolTip.RenderMode.INFLATED */
+    private Drawable mDefaultTopPointerDrawable;
+    private Drawable mDefaultTopFrameDrawable;
+    private Drawable mDefaultBottomPointerDrawable;
+    private Drawable mDefaultBottomFrameDrawable;
+    private int mAppliedColor;
+    private boolean mColorApplied;
+
+    private ColorStateList mDefaultTextColors;
+    private Typeface mDefaultTypeface;
+
     private ToolTip mToolTip;
     private View mView;
 
     private boolean mDimensionsKnown;
-    private int mRelativeMasterViewY;
-
-    private int mRelativeMasterViewX;
     private int mWidth;
 
+    private boolean mSkipAppearAnimation;
+    private boolean mRemoving;
+    private ToolTipDismissTimer.Timeout mDismissTimeout;
+
+    private boolean mContentPending;
+    private boolean mWaitingForContent;
+    private boolean mContentChanged;
+
+    private final ToolTipPlacement mPlacement = new ToolTipPlacement();
+    private final int[] mMasterViewScreenPosition = new int[2];
+    private final int[] mParentViewScreenPosition = new int[2];
+    private final Rect mViewDisplayFrame = new Rect();
+    private ToolTipRelativeLayout mToolTipRelativeLayout;
+    private ToolTipAnimationDriver mAnimationDriver;
+    private boolean mAppearing;
+
     private OnToolTipViewClickedListener mListener;
+    private OnToolTipViewDismissedListener mDismissedListener;
 
     public ToolTipView(final Context context) {
+        this(context, ToolTip.RenderMode.INFLATED);
+    }
+
+    public ToolTipView(final Context context, final ToolTip.RenderMode renderMode) {
         super(context);
+        mRenderMode = renderMode;
         init();
     }
 
     private void init() {
         setLayoutParams(new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
         setOrientation(VERTICAL);
-        LayoutInflater.from(getContext()).inflate(R.layout.tooltip, this, true);
 
-        mTopPointerView = (ImageView) findViewById(R.id.tooltip_pointer_up);
-        mTopFrame = findViewById(R.id.tooltip_topframe);
-        mContentHolder = (ViewGroup) findViewById(R.id.tooltip_contentholder);
-        mToolTipTV = (TextView) findViewById(R.id.tooltip_contenttv);
-        mBottomFrame = findViewById(R.id.tooltip_bottomframe);
-        mBottomPointerView = (ImageView) findViewById(R.id.tooltip_pointer_down);
-        mShadowView = findViewById(R.id.tooltip_shadow);
+        if (mRenderMode == ToolTip.RenderMode.DRAWN) {
+            initDrawn();
+        } else {
+            LayoutInflater.from(getContext()).inflate(R.layout.tooltip, this, true);
+
+            mTopPointerView = (ImageView) findViewById(R.id.tooltip_pointer_up);
+            mTopFrame = findViewById(R.id.tooltip_topframe);
+            mContentHolder = (ViewGroup) findViewById(R.id.tooltip_contentholder);
+            mToolTipTV = (TextView) findViewById(R.id.tooltip_contenttv);
+            mBottomFrame = findViewById(R.id.tooltip_bottomframe);
+            mBottomPointerView = (ImageView) findViewById(R.id.tooltip_pointer_down);
+            mShadowView = findViewById(R.id.tooltip_shadow);
+
+            mDefaultTopPointerDrawable = mTopPointerView.getDrawable();
+            mDefaultTopFrameDrawable = mTopFrame.getBackground();
+            mDefaultBottomPointerDrawable = mBottomPointerView.getDrawable();
+            mDefaultBottomFrameDrawable = mBottomFrame.getBackground();
+        }
+
+        mDefaultTextColors = mToolTipTV.getTextColors();
+        mDefaultTypeface = mToolTipTV.getTypeface();
 
         setOnClickListener(this);
-        getViewTreeObserver().addOnPreDrawListener(this);
     }
 
+    /**
+     * Sets up a ToolTipView that draws its own frame, pointer and shadow, and
+     * only hosts the content holder as a child.
+     */
+    private void initDrawn() {
+        setWillNotDraw(false);
+
+        mPointerWidth = getResources().getDimensionPixelSize(R.dimen.tooltip_drawn_pointer_width);
+        mPointerHeight = getResources().getDimensionPixelSize(R.dimen.tooltip_drawn_pointer_height);
+        mCornerRadius = getResources().getDimensionPixelSize(R.dimen.tooltip_drawn_corner_radius);
+        mShadowOffset = getResources().getDimensionPixelSize(R.dimen.tooltip_drawn_shadow_offset);
+        final int horizontalPadding = getResources().getDimensionPixelSize(R.dimen.tooltip_drawn_content_padding_horizontal);
+        final int verticalPadding = getResources().getDimensionPixelSize(R.dimen.tooltip_drawn_content_padding_vertical);
+
+        mBubblePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mBubblePaint.setColor(Color.WHITE);
+        mShadowPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        mShadowPaint.setColor(SHADOW_COLOR);
+        mBubblePath = new Path();
+        mBubbleRect = new RectF();
+
+        mToolTipTV = new TextView(getContext());
+        mContentHolder = new FrameLayout(getContext());
+        mContentHolder.setPadding(horizontalPadding, verticalPadding, horizontalPadding, verticalPadding);
+        mContentHolder.addView(mToolTipTV, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+        addView(mContentHolder, new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+
+        /* Room for the pointer on either side; the shadow is drawn within the bottom pointer's room. */
+        setPadding(0, mPointerHeight, 0, mPointerHeight);
+    }
+
+    public ToolTip.RenderMode getRenderMode() {
+        return mRenderMode;
+    }
+
+    /**
+     * Measures this ToolTipView as wide as its content, bounded by the width
+     * the container allows. The frames in the inflated layout would
+     * otherwise stretch to the full available width.
+     */
+    @Override
+    protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec) {
+        final ToolTipMetricsListener metricsListener = getMetricsListener();
+        if (metricsListener == null) {
+            measureToolTip(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+
+        final long startNanos = System.nanoTime();
+        measureToolTip(widthMeasureSpec, heightMeasureSpec);
+        metricsListener.onToolTipMeasured(this, startNanos, System.nanoTime());
+    }
+
+    private void measureToolTip(final int widthMeasureSpec, final int heightMeasureSpec) {
+        if (mTextBitmapKey != null) {
+            final int maxWidth = MeasureSpec.getSize(widthMeasureSpec);
+            if (maxWidth != mTextBitmapMaxWidth) {
+                mTextBitmapMaxWidth = maxWidth;
+                mTextBitmapKey.setMaxWidth(maxWidth);
+                mTextBitmap = ToolTipBitmapCache.getInstance().get(mTextBitmapKey);
+            }
+
+            if (mTextBitmap != null) {
+                /* The text has been rendered before: no need to measure the content. */
+                setMeasuredDimension(mTextBitmap.getWidth() + getPaddingLeft() + getPaddingRight(), mTextBitmap.getHeight() + getPaddingTop() + getPaddingBottom());
+                mWidth = getMeasuredWidth();
+                return;
+            }
+        }
+
+        super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+
+        final int contentWidth = mContentHolder.getMeasuredWidth() + getPaddingLeft() + getPaddingRight();
+        if (getMeasuredWidth() != contentWidth) {
+            super.onMeasure(MeasureSpec.makeMeasureSpec(contentWidth, MeasureSpec.EXACTLY), heightMeasureSpec);
+        }
+        mWidth = getMeasuredWidth();
+    }
+
+    /**
+     * Positions the ToolTip during the first layout pass, so that the first
+     * frame that is drawn already shows it at the right location.
+     */
     @Override
-    public boolean onPreDraw() {
-        getViewTreeObserver().removeOnPreDrawListener(this);
-        mDimensionsKnown = true;
+    protected void onLayout(final boolean changed, final int l, final int t, final int r, final int b) {
+        final ToolTipMetricsListener metricsListener = getMetricsListener();
+        if (metricsListener == null) {
+            layoutToolTip(changed, l, t, r, b);
+            return;
+        }
+
+        final long startNanos = System.nanoTime();
+        layoutToolTip(changed, l, t, r, b);
+        metricsListener.onToolTipLaidOut(this, startNanos, System.nanoTime());
+    }
 
-        mWidth = mContentHolder.getWidth();
+    private void layoutToolTip(final boolean changed, final int l, final int t, final int r, final int b) {
+        super.onLayout(changed, l, t, r, b);
 
-        RelativeLayout.LayoutParams layoutParams = (RelativeLayout.LayoutParams) getLayoutParams();
-        layoutParams.width = mWidth;
-        setLayoutParams(layoutParams);
+        if (mTextBitmapKey != null && mTextBitmap == null) {
+            renderTextBitmap();
+        }
 
-        if (mToolTip != null) {
+        if (!mDimensionsKnown && mToolTip != null && !mWaitingForContent) {
+            mDimensionsKnown = true;
             applyToolTipPosition();
+        } else if (mContentChanged) {
+            mContentChanged = false;
+            updateToolTipPosition();
         }
-        return true;
     }
 
     public void setToolTip(final ToolTip toolTip, final View view) {
         mToolTip = toolTip;
         mView = view;
-
-        if (mToolTip.getText() != null) {
-            mToolTipTV.setText(mToolTip.getText());
-        } else if (mToolTip.getTextResId() != 0) {
-            mToolTipTV.setText(mToolTip.getTextResId());
+        mRemoving = false;
+
+        final boolean usesPreparedTextLayout = mToolTip.getContentView() == null && mToolTip.getContentViewResId() == 0
+                && mToolTip.getPreparedTextLayout() != null;
+        /* A prepared text layout is shown in place of the TextView, which then does not need to measure the text. */
+        if (!usesPreparedTextLayout) {
+            if (mToolTip.getText() != null) {
+                mToolTipTV.setText(mToolTip.getText());
+            } else if (mToolTip.getTextResId() != 0) {
+                mToolTipTV.setText(mToolTip.getTextResId());
+            }
         }
 
         if (mToolTip.getTypeface() != null) {
@@ -133,156 +331,640 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
 
         if (mToolTip.getContentView() != null) {
             setContentView(mToolTip.getContentView());
+        } else if (mToolTip.getContentViewResId() != 0) {
+            mContentPending = true;
+            if (mToolTip.getContentPlaceholder() != null) {
+                setContentView(mToolTip.getContentPlaceholder());
+            } else if (mToolTip.getText() == null && mToolTip.getTextResId() == 0) {
+                mWaitingForContent = true;
+                setVisibility(INVISIBLE);
+            }
+        } else if (usesPreparedTextLayout) {
+            setPreparedTextLayout(mToolTip.getPreparedTextLayout());
         }
 
-        if (!mToolTip.shouldShowShadow()) {
+        if (mRenderMode == ToolTip.RenderMode.DRAWN) {
+            mShowShadow = mToolTip.shouldShowShadow();
+            invalidate();
+        } else if (!mToolTip.shouldShowShadow()) {
             mShadowView.setVisibility(View.GONE);
         }
 
+        setUpTextBitmap();
+
         if (mDimensionsKnown) {
             applyToolTipPosition();
         }
     }
 
+    /**
+     * Prepares the key to look up a pre-rendered text Bitmap with, if the ToolTip qualifies for it.
+     */
+    private void setUpTextBitmap() {
+        mTextBitmapKey = null;
+        mTextBitmap = null;
+        mTextBitmapMaxWidth = NOT_LOOKED_UP;
+
+        final CharSequence text = mToolTipTV.getText();
+        if (mRenderMode != ToolTip.RenderMode.DRAWN || !mToolTip.shouldCacheBitmap() || mToolTip.getContentView() != null || mContentPending
+                || text == null || text instanceof Spanned) {
+            return;
+        }
+
+        mTextBitmapLookupKey.set(text.toString(), mToolTipTV.getTypeface(), mToolTipTV.getCurrentTextColor(), mToolTipTV.getTextSize());
+        mTextBitmapKey = mTextBitmapLookupKey;
+        ToolTipBitmapCache.getInstance().register(getContext());
+    }
+
+    /**
+     * Renders the laid out content into a Bitmap for the next ToolTip with
+     * the same text. This ToolTipView draws the Bitmap as well, so the text
+     * is rendered only once.
+     */
+    private void renderTextBitmap() {
+        final int width = mContentHolder.getWidth();
+        final int height = mContentHolder.getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        mContentHolder.draw(new Canvas(bitmap));
+        ToolTipBitmapCache.getInstance().put(mTextBitmapKey, bitmap);
+        mTextBitmap = bitmap;
+    }
+
+    @Override
+    protected void dispatchDraw(final Canvas canvas) {
+        if (mTextBitmap == null) {
+            super.dispatchDraw(canvas);
+        } else {
+            canvas.drawBitmap(mTextBitmap, getPaddingLeft(), getPaddingTop(), null);
+        }
+    }
+
     private void applyToolTipPosition() {
-        final int[] masterViewScreenPosition = new int[2];
-        mView.getLocationOnScreen(masterViewScreenPosition);
+        placeToolTip();
 
-        final Rect viewDisplayFrame = new Rect();
-        mView.getWindowVisibleDisplayFrame(viewDisplayFrame);
+        if (mToolTipRelativeLayout != null && mToolTip.getDisplayDuration() > 0) {
+            mToolTipRelativeLayout.getDismissTimer().schedule(this, mToolTip.getDisplayDuration());
+        }
 
-        final int[] parentViewScreenPosition = new int[2];
-        ((View) getParent()).getLocationOnScreen(parentViewScreenPosition);
+        final int toolTipViewX = mPlacement.getX();
+        final int toolTipViewY = mPlacement.getY();
+        if (mToolTip.getAnimationType() == ToolTip.AnimationType.NONE || mSkipAppearAnimation) {
+            ViewHelper.setTranslationY(this, toolTipViewY);
+            ViewHelper.setTranslationX(this, toolTipViewX);
+        } else {
+            final boolean fromMasterView = mToolTip.getAnimationType() == ToolTip.AnimationType.FROM_MASTER_VIEW;
+
+            mAppearing = true;
+            getAnimationDriver().animateIn(this, fromMasterView,
+                    fromMasterView ? mPlacement.getAnchorCenteredX() : toolTipViewX, toolTipViewX,
+                    fromMasterView ? mPlacement.getAnchorCenteredY() : 0, toolTipViewY);
+
+            final ToolTipMetricsListener metricsListener = getMetricsListener();
+            if (metricsListener != null) {
+                metricsListener.onToolTipAppearAnimationStarted(this, System.nanoTime());
+            }
+        }
+    }
 
-        final int masterViewWidth = mView.getWidth();
-        final int masterViewHeight = mView.getHeight();
+    /**
+     * Moves the ToolTip straight to its new position after its content has
+     * changed size, finishing the appear animation if it is still running.
+     */
+    private void updateToolTipPosition() {
+        if (mAppearing) {
+            getAnimationDriver().cancel(this);
+            ToolTipViewProperty.SCALE_X.set(this, 1);
+            ToolTipViewProperty.SCALE_Y.set(this, 1);
+            ToolTipViewProperty.ALPHA.set(this, 1);
+        }
 
-        mRelativeMasterViewX = masterViewScreenPosition[0] - parentViewScreenPosition[0];
-        mRelativeMasterViewY = masterViewScreenPosition[1] - parentViewScreenPosition[1];
-        final int relativeMasterViewCenterX = mRelativeMasterViewX + masterViewWidth / 2;
+        placeToolTip();
+        ViewHelper.setTranslationY(this, mPlacement.getY());
+        ViewHelper.setTranslationX(this, mPlacement.getX());
 
-        int toolTipViewAboveY = mRelativeMasterViewY - getHeight();
-        int toolTipViewBelowY = Math.max(0, mRelativeMasterViewY + masterViewHeight);
+        if (mAppearing) {
+            onAppearAnimationEnd();
+        }
+    }
 
-        int toolTipViewX = Math.max(0, relativeMasterViewCenterX - mWidth / 2);
-        if (toolTipViewX + mWidth > viewDisplayFrame.right) {
-            toolTipViewX = viewDisplayFrame.right - mWidth;
+    /**
+     * Determines the position of the ToolTip and its pointer, and applies
+     * the pointer position.
+     */
+    private void placeToolTip() {
+        mView.getLocationOnScreen(mMasterViewScreenPosition);
+        mView.getWindowVisibleDisplayFrame(mViewDisplayFrame);
+        ((View) getParent()).getLocationOnScreen(mParentViewScreenPosition);
+
+        mToolTipRelativeLayout = getParent() instanceof ToolTipRelativeLayout ? (ToolTipRelativeLayout) getParent() : null;
+        final ToolTipSpatialIndex<ToolTipView> toolTipViewBounds = mToolTipRelativeLayout == null ? null : mToolTipRelativeLayout.getToolTipViewBounds();
+
+        ToolTipPlacementEngine.place(
+                mMasterViewScreenPosition[0], mMasterViewScreenPosition[1], mView.getWidth(), mView.getHeight(),
+                mParentViewScreenPosition[0], mParentViewScreenPosition[1], mViewDisplayFrame.right,
+                mWidth, getHeight(), getPointerWidth(),
+                toolTipViewBounds, this,
+                mPlacement
+        );
+
+        final int toolTipViewX = mPlacement.getX();
+        if (mToolTipRelativeLayout != null) {
+            updateBounds();
+            if (mToolTip.shouldTrackAnchor()) {
+                mToolTipRelativeLayout.getAnchorTracker().track(this);
+            }
         }
+        final boolean showBelow = mPlacement.isShowBelow();
 
         setX(toolTipViewX);
-        setPointerCenterX(relativeMasterViewCenterX);
-
-        final boolean showBelow = toolTipViewAboveY < 0;
+        applyPointerX(mPlacement.getPointerX());
 
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+        if (mRenderMode == ToolTip.RenderMode.DRAWN) {
+            mPointerUp = showBelow;
+            updateBubblePath();
+        } else if (isPreHoneycomb()) {
             ViewHelper.setAlpha(mTopPointerView, showBelow ? 1 : 0);
             ViewHelper.setAlpha(mBottomPointerView, showBelow ? 0 : 1);
         } else {
             mTopPointerView.setVisibility(showBelow ? VISIBLE : GONE);
             mBottomPointerView.setVisibility(showBelow ? GONE : VISIBLE);
         }
+    }
 
-        int toolTipViewY;
-        if (showBelow) {
-            toolTipViewY = toolTipViewBelowY;
+    /**
+     * In a {@link ToolTipOverlayLayout}, lets the overlay lay out this
+     * ToolTipView by itself, instead of requesting a layout pass of the
+     * whole View hierarchy.
+     */
+    @Override
+    public void requestLayout() {
+        if (getParent() instanceof ToolTipOverlayLayout) {
+            ((ToolTipOverlayLayout) getParent()).requestToolTipViewLayout(this);
         } else {
-            toolTipViewY = toolTipViewAboveY;
+            super.requestLayout();
         }
+    }
 
-        if (mToolTip.getAnimationType() == ToolTip.AnimationType.NONE) {
-            ViewHelper.setTranslationY(this, toolTipViewY);
-            ViewHelper.setTranslationX(this, toolTipViewX);
-        } else {
-            Collection<Animator> animators = new ArrayList<>(5);
+    /**
+     * Marks this ToolTipView as needing a layout pass, and requests one from its parent as usual.
+     */
+    void requestLayoutFromParent() {
+        super.requestLayout();
+    }
 
-            if (mToolTip.getAnimationType() == ToolTip.AnimationType.FROM_MASTER_VIEW) {
-                animators.add(ObjectAnimator.ofInt(this, TRANSLATION_Y_COMPAT, mRelativeMasterViewY + mView.getHeight() / 2 - getHeight() / 2, toolTipViewY));
-                animators.add(ObjectAnimator.ofInt(this, TRANSLATION_X_COMPAT, mRelativeMasterViewX + mView.getWidth() / 2 - mWidth / 2, toolTipViewX));
-            } else if (mToolTip.getAnimationType() == ToolTip.AnimationType.FROM_TOP) {
-                animators.add(ObjectAnimator.ofFloat(this, TRANSLATION_Y_COMPAT, 0, toolTipViewY));
-            }
+    @Override
+    protected void onDetachedFromWindow() {
+        final ToolTipMetricsListener metricsListener = getMetricsListener();
+        if (metricsListener != null) {
+            metricsListener.onToolTipDetached(this, System.nanoTime());
+        }
+        super.onDetachedFromWindow();
+    }
 
-            animators.add(ObjectAnimator.ofFloat(this, SCALE_X_COMPAT, 0, 1));
-            animators.add(ObjectAnimator.ofFloat(this, SCALE_Y_COMPAT, 0, 1));
+    /**
+     * @return the metrics listener of the ToolTipRelativeLayout this ToolTipView is shown in, if any.
+     */
+    private ToolTipMetricsListener getMetricsListener() {
+        return getParent() instanceof ToolTipRelativeLayout ? ((ToolTipRelativeLayout) getParent()).getMetricsListener() : null;
+    }
 
-            animators.add(ObjectAnimator.ofFloat(this, ALPHA_COMPAT, 0, 1));
+    private ToolTipAnimationDriver getAnimationDriver() {
+        if (mToolTipRelativeLayout != null) {
+            return mToolTipRelativeLayout.getAnimationDriver();
+        }
 
-            AnimatorSet animatorSet = new AnimatorSet();
-            animatorSet.playTogether(animators);
+        if (mAnimationDriver == null) {
+            mAnimationDriver = new ToolTipAnimationDriver(this);
+        }
+        return mAnimationDriver;
+    }
 
-            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
-                animatorSet.addListener(new AppearanceAnimatorListener(toolTipViewX, toolTipViewY));
-            }
+    /**
+     * Called by the {@link ToolTipAnimationDriver} when the appear animation
+     * has ended. The ToolTipView keeps its position as a translation, also
+     * before Honeycomb, so no layout pass is needed; see
+     * {@link #dispatchTranslatedTouchEvent(MotionEvent)} for how touches
+     * reach it there.
+     */
+    void onAppearAnimationEnd() {
+        mAppearing = false;
 
-            animatorSet.start();
+        final ToolTipMetricsListener metricsListener = getMetricsListener();
+        if (metricsListener != null) {
+            metricsListener.onToolTipAppearAnimationEnded(this, System.nanoTime());
         }
     }
 
+    /**
+     * Called by the {@link ToolTipAnimationDriver} when the disappear animation has ended.
+     */
+    void onDisappearAnimationEnd() {
+        removeFromParent();
+    }
+
     public void setPointerCenterX(final int pointerCenterX) {
-        int pointerWidth = Math.max(mTopPointerView.getMeasuredWidth(), mBottomPointerView.getMeasuredWidth());
+        applyPointerX(pointerCenterX - getPointerWidth() / 2 - (int) getX());
+    }
+
+    private int getPointerWidth() {
+        if (mRenderMode == ToolTip.RenderMode.DRAWN) {
+            return mPointerWidth;
+        }
+        return Math.max(mTopPointerView.getMeasuredWidth(), mBottomPointerView.getMeasuredWidth());
+    }
+
+    /**
+     * Moves the pointer to given x position, relative to this ToolTipView.
+     */
+    private void applyPointerX(final int pointerX) {
+        if (mRenderMode == ToolTip.RenderMode.DRAWN) {
+            mPointerCenterX = pointerX + mPointerWidth / 2;
+            updateBubblePath();
+            return;
+        }
 
-        ViewHelper.setX(mTopPointerView, pointerCenterX - pointerWidth / 2 - (int) getX());
-        ViewHelper.setX(mBottomPointerView, pointerCenterX - pointerWidth / 2 - (int) getX());
+        ViewHelper.setX(mTopPointerView, pointerX);
+        ViewHelper.setX(mBottomPointerView, pointerX);
     }
 
     public void setOnToolTipViewClickedListener(final OnToolTipViewClickedListener listener) {
         mListener = listener;
     }
 
+    /**
+     * Sets the listener to notify when this ToolTipView dismisses itself,
+     * instead of being clicked or removed using {@link #remove()}.
+     */
+    public void setOnToolTipViewDismissedListener(final OnToolTipViewDismissedListener listener) {
+        mDismissedListener = listener;
+    }
+
+    @SuppressWarnings("deprecation")
     public void setColor(final int color) {
-        mTopPointerView.setColorFilter(color, PorterDuff.Mode.MULTIPLY);
-        mTopFrame.getBackground().setColorFilter(color, PorterDuff.Mode.MULTIPLY);
-        mBottomPointerView.setColorFilter(color, PorterDuff.Mode.MULTIPLY);
-        mBottomFrame.getBackground().setColorFilter(color, PorterDuff.Mode.MULTIPLY);
+        if (mRenderMode == ToolTip.RenderMode.DRAWN) {
+            mBubblePaint.setColor(color);
+            invalidate();
+            return;
+        }
+
+        if (mColorApplied && color == mAppliedColor) {
+            return;
+        }
+        mAppliedColor = color;
+        mColorApplied = true;
+
+        final ColorFilter colorFilter = ColorFilterCache.getInstance().get(color, PorterDuff.Mode.MULTIPLY);
+        mTopPointerView.setImageDrawable(newTintedDrawable(R.drawable.tooltip_arrow_up, colorFilter));
+        mTopFrame.setBackgroundDrawable(newTintedDrawable(R.drawable.tooltip_top_frame, colorFilter));
+        mBottomPointerView.setImageDrawable(newTintedDrawable(R.drawable.tooltip_arrow_down, colorFilter));
+        mBottomFrame.setBackgroundDrawable(newTintedDrawable(R.drawable.tooltip_bottom_frame, colorFilter));
         mContentHolder.setBackgroundColor(color);
     }
 
+    /**
+     * Returns a drawable for given resource that is tinted by given color filter,
+     * without affecting other drawables that were loaded from the same resource.
+     */
+    private Drawable newTintedDrawable(final int resId, final ColorFilter colorFilter) {
+        final Drawable drawable = getResources().getDrawable(resId).mutate();
+        drawable.setColorFilter(colorFilter);
+        return drawable;
+    }
+
+    @Override
+    protected void onSizeChanged(final int w, final int h, final int oldw, final int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (mRenderMode == ToolTip.RenderMode.DRAWN) {
+            updateBubblePath();
+        }
+    }
+
+    /**
+     * Rebuilds the path of the drawn frame and pointer. Only called when the
+     * size, pointer position or pointer direction changes, not on every draw.
+     */
+    private void updateBubblePath() {
+        final int width = getWidth();
+        final int height = getHeight();
+
+        mBubblePath.reset();
+        mBubbleRect.set(0, mPointerHeight, width, height - mPointerHeight);
+        mBubblePath.addRoundRect(mBubbleRect, mCornerRadius, mCornerRadius, Path.Direction.CW);
+
+        final int halfPointerWidth = mPointerWidth / 2;
+        final int pointerCenterX = Math.max(mCornerRadius + halfPointerWidth, Math.min(width - mCornerRadius - halfPointerWidth, mPointerCenterX));
+
+        /* Both pointers are added clockwise, like the frame, so they merge with it. */
+        if (mPointerUp) {
+            mBubblePath.moveTo(pointerCenterX - halfPointerWidth, mBubbleRect.top + 1);
+            mBubblePath.lineTo(pointerCenterX, 0);
+            mBubblePath.lineTo(pointerCenterX + halfPointerWidth, mBubbleRect.top + 1);
+        } else {
+            mBubblePath.moveTo(pointerCenterX + halfPointerWidth, mBubbleRect.bottom - 1);
+            mBubblePath.lineTo(pointerCenterX, height);
+            mBubblePath.lineTo(pointerCenterX - halfPointerWidth, mBubbleRect.bottom - 1);
+        }
+        mBubblePath.close();
+
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(final Canvas canvas) {
+        super.onDraw(canvas);
+        if (mRenderMode != ToolTip.RenderMode.DRAWN) {
+            return;
+        }
+
+        if (mShowShadow) {
+            canvas.save();
+            canvas.translate(0, mShadowOffset);
+            canvas.drawPath(mBubblePath, mShadowPaint);
+            canvas.restore();
+        }
+        canvas.drawPath(mBubblePath, mBubblePaint);
+    }
+
     private void setContentView(final View view) {
         mContentHolder.removeAllViews();
         mContentHolder.addView(view);
     }
 
+    /**
+     * Replaces the placeholder with the content View that was inflated for
+     * given ToolTip, unless this ToolTipView has been removed or shows
+     * another ToolTip in the meantime.
+     */
+    void setInflatedContentView(final ToolTip toolTip, final View view) {
+        if (!mContentPending || toolTip != mToolTip) {
+            return;
+        }
+
+        mContentPending = false;
+        setContentView(view);
+        if (mWaitingForContent) {
+            mWaitingForContent = false;
+            setVisibility(VISIBLE);
+        } else if (mDimensionsKnown) {
+            mContentChanged = true;
+        }
+    }
+
+    /**
+     * Lets the ToolTip appear in its final position right away, for example when it is restored.
+     */
+    void skipAppearAnimation() {
+        mSkipAppearAnimation = true;
+    }
+
+    ToolTip getToolTip() {
+        return mToolTip;
+    }
+
+    View getAnchorView() {
+        return mView;
+    }
+
+    /**
+     * @return whether remove() has been called, and this ToolTipView is disappearing.
+     */
+    boolean isRemoving() {
+        return mRemoving;
+    }
+
+    ToolTipDismissTimer.Timeout getDismissTimeout() {
+        return mDismissTimeout;
+    }
+
+    void setDismissTimeout(final ToolTipDismissTimer.Timeout dismissTimeout) {
+        mDismissTimeout = dismissTimeout;
+    }
+
+    boolean isContentPending() {
+        return mContentPending;
+    }
+
+    /**
+     * Shows given text layout, computed in the background, in place of the TextView, so that the text does not have to be measured again.
+     */
+    private void setPreparedTextLayout(final Layout textLayout) {
+        if (mPreparedTextView == null) {
+            mPreparedTextView = new PreparedTextView(getContext());
+        }
+        mPreparedTextView.setTextLayout(textLayout);
+        if (mPreparedTextView.getParent() != mContentHolder) {
+            setContentView(mPreparedTextView);
+        }
+    }
+
     public void remove() {
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
-            RelativeLayout.LayoutParams params = (RelativeLayout.LayoutParams) getLayoutParams();
-            setX(params.leftMargin);
-            setY(params.topMargin);
-            params.leftMargin = 0;
-            params.topMargin = 0;
-            setLayoutParams(params);
+        if (mToolTip == null || mRemoving) {
+            return;
         }
+        mRemoving = true;
 
+        if (mToolTipRelativeLayout != null) {
+            mToolTipRelativeLayout.onToolTipViewRemoving(this);
+        }
+
+        final ToolTipMetricsListener metricsListener = getMetricsListener();
+        if (metricsListener != null) {
+            metricsListener.onToolTipDismissed(this, System.nanoTime(), mAppearing);
+        }
+
+        mAppearing = false;
+        mContentPending = false;
         if (mToolTip.getAnimationType() == ToolTip.AnimationType.NONE) {
-            if (getParent() != null) {
-                ((ViewManager) getParent()).removeView(this);
-            }
+            getAnimationDriver().cancel(this);
+            removeFromParent();
         } else {
-            Collection<Animator> animators = new ArrayList<>(5);
-            if (mToolTip.getAnimationType() == ToolTip.AnimationType.FROM_MASTER_VIEW) {
-                animators.add(ObjectAnimator.ofInt(this, TRANSLATION_Y_COMPAT, (int) getY(), mRelativeMasterViewY + mView.getHeight() / 2 - getHeight() / 2));
-                animators.add(ObjectAnimator.ofInt(this, TRANSLATION_X_COMPAT, (int) getX(), mRelativeMasterViewX + mView.getWidth() / 2 - mWidth / 2));
-            } else {
-                animators.add(ObjectAnimator.ofFloat(this, TRANSLATION_Y_COMPAT, getY(), 0));
-            }
+            final boolean toMasterView = mToolTip.getAnimationType() == ToolTip.AnimationType.FROM_MASTER_VIEW;
 
-            animators.add(ObjectAnimator.ofFloat(this, SCALE_X_COMPAT, 1, 0));
-            animators.add(ObjectAnimator.ofFloat(this, SCALE_Y_COMPAT, 1, 0));
+            getAnimationDriver().animateOut(this, toMasterView,
+                    getX(), toMasterView ? mPlacement.getAnchorCenteredX() : getX(),
+                    getY(), toMasterView ? mPlacement.getAnchorCenteredY() : 0);
+        }
+    }
+
+    /**
+     * Removes this ToolTipView like {@link #remove()}, and notifies the {@link OnToolTipViewDismissedListener}.
+     */
+    void dismiss() {
+        if (mToolTip == null || mRemoving) {
+            return;
+        }
 
-            animators.add(ObjectAnimator.ofFloat(this, ALPHA_COMPAT, 1, 0));
+        /* remove() may recycle this ToolTipView right away, which clears the listener. */
+        final OnToolTipViewDismissedListener listener = mDismissedListener;
+        remove();
 
-            AnimatorSet animatorSet = new AnimatorSet();
-            animatorSet.playTogether(animators);
-            animatorSet.addListener(new DisappearanceAnimatorListener());
-            animatorSet.start();
+        if (listener != null) {
+            listener.onToolTipViewDismissed(this);
         }
     }
 
+    private void removeFromParent() {
+        if (getParent() instanceof ToolTipRelativeLayout) {
+            ((ToolTipRelativeLayout) getParent()).recycleToolTipView(this);
+        } else if (getParent() != null) {
+            ((ViewManager) getParent()).removeView(this);
+        }
+    }
+
+    /**
+     * Resets this ToolTipView to its initial state, so it can be reused to show another ToolTip.
+     */
+    @SuppressWarnings("deprecation")
+    void reset() {
+        if (mRenderMode == ToolTip.RenderMode.DRAWN) {
+            mBubblePaint.setColor(Color.WHITE);
+            mShowShadow = false;
+        } else if (mColorApplied) {
+            mTopPointerView.setImageDrawable(mDefaultTopPointerDrawable);
+            mTopFrame.setBackgroundDrawable(mDefaultTopFrameDrawable);
+            mBottomPointerView.setImageDrawable(mDefaultBottomPointerDrawable);
+            mBottomFrame.setBackgroundDrawable(mDefaultBottomFrameDrawable);
+            mContentHolder.setBackgroundColor(Color.WHITE);
+            mColorApplied = false;
+        }
+
+        if (mToolTipTV.getParent() != mContentHolder) {
+            mContentHolder.removeAllViews();
+            mContentHolder.addView(mToolTipTV);
+        }
+        if (mPreparedTextView != null) {
+            mPreparedTextView.setTextLayout(null);
+        }
+        mToolTipTV.setText(null);
+        mToolTipTV.setTextColor(mDefaultTextColors);
+        mToolTipTV.setTypeface(mDefaultTypeface);
+        if (mShadowView != null) {
+            mShadowView.setVisibility(View.VISIBLE);
+        }
+
+        ViewHelper.setTranslationX(this, 0);
+        ViewHelper.setTranslationY(this, 0);
+        ViewHelper.setScaleX(this, 1);
+        ViewHelper.setScaleY(this, 1);
+        ViewHelper.setAlpha(this, 1);
+
+        getAnimationDriver().cancel(this);
+
+        mToolTip = null;
+        mView = null;
+        mListener = null;
+        mDismissedListener = null;
+        mToolTipRelativeLayout = null;
+        mAppearing = false;
+        mTextBitmapKey = null;
+        mTextBitmap = null;
+        mTextBitmapMaxWidth = NOT_LOOKED_UP;
+        mDimensionsKnown = false;
+        mContentPending = false;
+        mWaitingForContent = false;
+        mContentChanged = false;
+        mSkipAppearAnimation = false;
+        mRemoving = false;
+        setVisibility(VISIBLE);
+
+        setLayoutParams(new LayoutParams(ViewGroup.LayoutParams.WRAP_CONTENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+    }
+
+    /**
+     * Moves this ToolTipView by the distance its anchor has moved since it
+     * was last positioned, using translation only.
+     *
+     * @return true if this ToolTipView was moved.
+     */
+    boolean followAnchor() {
+        if (mAppearing || mView == null || getParent() == null) {
+            return false;
+        }
+
+        mView.getLocationOnScreen(mMasterViewScreenPosition);
+        ((View) getParent()).getLocationOnScreen(mParentViewScreenPosition);
+
+        final int dx = mMasterViewScreenPosition[0] - mParentViewScreenPosition[0] - mPlacement.getAnchorX();
+        final int dy = mMasterViewScreenPosition[1] - mParentViewScreenPosition[1] - mPlacement.getAnchorY();
+        if (dx == 0 && dy == 0) {
+            return false;
+        }
+
+        mPlacement.offset(dx, dy);
+        ViewHelper.setTranslationX(this, ViewHelper.getTranslationX(this) + dx);
+        ViewHelper.setTranslationY(this, ViewHelper.getTranslationY(this) + dy);
+
+        if (mToolTipRelativeLayout != null) {
+            updateBounds();
+        }
+        return true;
+    }
+
+    /**
+     * Stores the bounds of this ToolTipView and of its anchor View in the
+     * ToolTipRelativeLayout, which uses them to place other ToolTips and to
+     * find out which ToolTip a touch is meant for.
+     */
+    private void updateBounds() {
+        final int toolTipViewX = mPlacement.getX();
+        final int toolTipViewY = mPlacement.getY();
+        mToolTipRelativeLayout.getToolTipViewBounds().put(this, toolTipViewX, toolTipViewY, toolTipViewX + mWidth, toolTipViewY + getHeight());
+
+        final int anchorX = mPlacement.getAnchorX();
+        final int anchorY = mPlacement.getAnchorY();
+        mToolTipRelativeLayout.getAnchorBounds().put(this, anchorX, anchorY, anchorX + mView.getWidth(), anchorY + mView.getHeight());
+    }
+
+    /**
+     * Before Honeycomb, a translated View still receives touches at its
+     * layout position instead of where it is drawn. In a
+     * ToolTipRelativeLayout, those touches are ignored there, and the
+     * ToolTipRelativeLayout passes the touches at the drawn position using
+     * {@link #dispatchTranslatedTouchEvent(MotionEvent)} instead.
+     */
+    @Override
+    public boolean dispatchTouchEvent(final MotionEvent event) {
+        if (getParent() instanceof ToolTipRelativeLayout && ((ToolTipRelativeLayout) getParent()).isPreHoneycomb()) {
+            return false;
+        }
+        return super.dispatchTouchEvent(event);
+    }
+
+    /**
+     * @return whether pointers are hidden using their alpha, as needed before
+     * Honeycomb. A ToolTipRelativeLayout can force this, see
+     * {@link ToolTipRelativeLayout#isPreHoneycomb()}.
+     */
+    private boolean isPreHoneycomb() {
+        return mToolTipRelativeLayout == null ? PRE_HONEYCOMB : mToolTipRelativeLayout.isPreHoneycomb();
+    }
+
+    /**
+     * Handles given touch event, which is in the coordinates of the parent,
+     * as if this ToolTipView was laid out where it is drawn.
+     */
+    boolean dispatchTranslatedTouchEvent(final MotionEvent event) {
+        final float offsetX = getX();
+        final float offsetY = getY();
+
+        event.offsetLocation(-offsetX, -offsetY);
+        final boolean handled = super.dispatchTouchEvent(event);
+        event.offsetLocation(offsetX, offsetY);
+        return handled;
+    }
+
     @Override
     public void onClick(final View view) {
+        /* remove() may recycle this ToolTipView right away, which clears the listener. */
+        final OnToolTipViewClickedListener listener = mListener;
         remove();
 
-        if (mListener != null) {
-            mListener.onToolTipViewClicked(this);
+        if (listener != null) {
+            listener.onToolTipViewClicked(this);
         }
     }
 
@@ -346,59 +1028,12 @@ public class ToolTipView extends LinearLayout implements ViewTreeObserver.OnPreD
         void onToolTipViewClicked(ToolTipView toolTipView);
     }
 
-    private class AppearanceAnimatorListener extends AnimatorListenerAdapter {
-
-        private final float mToolTipViewX;
-        private final float mToolTipViewY;
-
-        AppearanceAnimatorListener(final float fToolTipViewX, final float fToolTipViewY) {
-            mToolTipViewX = fToolTipViewX;
-            mToolTipViewY = fToolTipViewY;
-        }
-
-        @Override
-        public void onAnimationStart(final Animator animation) {
-        }
-
-        @Override
-        @SuppressLint("NewApi")
-        public void onAnimationEnd(final Animator animation) {
-            RelativeLayout.LayoutParams params = (RelativeLayout.LayoutParams) getLayoutParams();
-            params.leftMargin = (int) mToolTipViewX;
-            params.topMargin = (int) mToolTipViewY;
-            setX(0);
-            setY(0);
-            setLayoutParams(params);
-        }
-
-        @Override
-        public void onAnimationCancel(final Animator animation) {
-        }
-
-        @Override
-        public void onAnimationRepeat(final Animator animation) {
-        }
-    }
-
-    private class DisappearanceAnimatorListener extends AnimatorListenerAdapter {
-
-        @Override
-        public void onAnimationStart(final Animator animation) {
-        }
-
-        @Override
-        public void onAnimationEnd(final Animator animation) {
-            if (getParent() != null) {
-                ((ViewManager) getParent()).removeView(ToolTipView.this);
-            }
-        }
-
-        @Override
-        public void onAnimationCancel(final Animator animation) {
-        }
-
-        @Override
-        public void onAnimationRepeat(final Animator animation) {
-        }
+    /**
+     * Notified when a ToolTipView dismisses itself. The ToolTipView may be
+     * reused for another ToolTip afterwards, so references to it should be
+     * dropped.
+     */
+    public interface OnToolTipViewDismissedListener {
+        void onToolTipViewDismissed(ToolTipView toolTipView);
     }
 }
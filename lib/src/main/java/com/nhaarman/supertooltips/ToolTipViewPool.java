@@ -0,0 +1,85 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bounded pool of detached {@link ToolTipView}s, so that showing a ToolTip
+ * does not have to inflate a new View hierarchy every time.
+ */
+class ToolTipViewPool {
+
+    private final List<ToolTipView> mToolTipViews = new ArrayList<>();
+
+    private int mMaxSize;
+    private int mHitCount;
+    private int mMissCount;
+
+    ToolTipViewPool(final int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Returns a pooled ToolTipView with given {@link ToolTip.RenderMode}, or
+     * null if there is none.
+     */
+    ToolTipView acquire(final ToolTip.RenderMode renderMode) {
+        for (int i = mToolTipViews.size() - 1; i >= 0; i--) {
+            if (mToolTipViews.get(i).getRenderMode() == renderMode) {
+                mHitCount++;
+                return mToolTipViews.remove(i);
+            }
+        }
+
+        mMissCount++;
+        return null;
+    }
+
+    /**
+     * Resets given ToolTipView and adds it to the pool, unless the pool is
+     * full or the ToolTipView is already pooled.
+     */
+    void release(final ToolTipView toolTipView) {
+        if (mToolTipViews.size() >= mMaxSize || mToolTipViews.contains(toolTipView)) {
+            return;
+        }
+
+        toolTipView.reset();
+        mToolTipViews.add(toolTipView);
+    }
+
+    void setMaxSize(final int maxSize) {
+        mMaxSize = maxSize;
+        while (mToolTipViews.size() > maxSize) {
+            mToolTipViews.remove(mToolTipViews.size() - 1);
+        }
+    }
+
+    int getMaxSize() {
+        return mMaxSize;
+    }
+
+    int getHitCount() {
+        return mHitCount;
+    }
+
+    int getMissCount() {
+        return mMissCount;
+    }
+}
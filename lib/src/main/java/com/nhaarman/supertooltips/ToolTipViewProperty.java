@@ -0,0 +1,125 @@
+/*
+ * Copyright 2013 Niek Haarman
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.nhaarman.supertooltips;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.View;
+
+import com.nineoldandroids.view.ViewHelper;
+
+/**
+ * Typed accessors for the View properties ToolTips are animated with. On
+ * Honeycomb and up the View setters are called directly; below Honeycomb
+ * {@link ViewHelper} is used. Unlike animating a property by name, no setter
+ * is looked up by reflection and no values are boxed.
+ */
+abstract class ToolTipViewProperty {
+
+    static final ToolTipViewProperty TRANSLATION_X = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ? new TranslationX() : new TranslationXCompat();
+    static final ToolTipViewProperty TRANSLATION_Y = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ? new TranslationY() : new TranslationYCompat();
+    static final ToolTipViewProperty SCALE_X = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ? new ScaleX() : new ScaleXCompat();
+    static final ToolTipViewProperty SCALE_Y = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ? new ScaleY() : new ScaleYCompat();
+    static final ToolTipViewProperty ALPHA = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ? new Alpha() : new AlphaCompat();
+
+    abstract void set(View view, float value);
+
+    @TargetApi(11)
+    private static class TranslationX extends ToolTipViewProperty {
+
+        @Override
+        void set(final View view, final float value) {
+            view.setTranslationX(value);
+        }
+    }
+
+    private static class TranslationXCompat extends ToolTipViewProperty {
+
+        @Override
+        void set(final View view, final float value) {
+            ViewHelper.setTranslationX(view, value);
+        }
+    }
+
+    @TargetApi(11)
+    private static class TranslationY extends ToolTipViewProperty {
+
+        @Override
+        void set(final View view, final float value) {
+            view.setTranslationY(value);
+        }
+    }
+
+    private static class TranslationYCompat extends ToolTipViewProperty {
+
+        @Override
+        void set(final View view, final float value) {
+            ViewHelper.setTranslationY(view, value);
+        }
+    }
+
+    @TargetApi(11)
+    private static class ScaleX extends ToolTipViewProperty {
+
+        @Override
+        void set(final View view, final float value) {
+            view.setScaleX(value);
+        }
+    }
+
+    private static class ScaleXCompat extends ToolTipViewProperty {
+
+        @Override
+        void set(final View view, final float value) {
+            ViewHelper.setScaleX(view, value);
+        }
+    }
+
+    @TargetApi(11)
+    private static class ScaleY extends ToolTipViewProperty {
+
+        @Override
+        void set(final View view, final float value) {
+            view.setScaleY(value);
+        }
+    }
+
+    private static class ScaleYCompat extends ToolTipViewProperty {
+
+        @Override
+        void set(final View view, final float value) {
+            ViewHelper.setScaleY(view, value);
+        }
+    }
+
+    @TargetApi(11)
+    private static class Alpha extends ToolTipViewProperty {
+
+        @Override
+        void set(final View view, final float value) {
+            view.setAlpha(value);
+        }
+    }
+
+    private static class AlphaCompat extends ToolTipViewProperty {
+
+        @Override
+        void set(final View view, final float value) {
+            ViewHelper.setAlpha(view, value);
+        }
+    }
+}